@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafBackendEndpoints;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafSharedGateway;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.javaoperatorsdk.operator.api.config.ControllerConfiguration;
+import io.javaoperatorsdk.operator.api.reconciler.Context;
+import io.javaoperatorsdk.operator.api.reconciler.IndexedResourceCache;
+import io.javaoperatorsdk.operator.api.reconciler.RetryInfo;
+import io.javaoperatorsdk.operator.api.reconciler.dependent.managed.DefaultManagedWorkflowAndDependentResourceContext;
+import io.javaoperatorsdk.operator.api.reconciler.dependent.managed.ManagedWorkflowAndDependentResourceContext;
+import io.javaoperatorsdk.operator.processing.event.EventSourceRetriever;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reconcile context without a cluster: the workflow context carries what the reconciler resolves before
+ * the dependents are reconciled (no gateway members, no backend endpoints), everything else is unsupported.
+ */
+class BenchmarkContext implements Context<CorazaWaf> {
+
+    private final CorazaWaf corazaWaf;
+    private final ManagedWorkflowAndDependentResourceContext workflowContext;
+
+    BenchmarkContext(CorazaWaf corazaWaf) {
+        this.corazaWaf = corazaWaf;
+        this.workflowContext = new DefaultManagedWorkflowAndDependentResourceContext<>(null, corazaWaf, this);
+        workflowContext.put(CorazaWafSharedGateway.CONTEXT_KEY, List.of());
+        workflowContext.put(CorazaWafBackendEndpoints.CONTEXT_KEY, List.of());
+    }
+
+    @Override
+    public ManagedWorkflowAndDependentResourceContext managedWorkflowAndDependentResourceContext() {
+        return workflowContext;
+    }
+
+    @Override
+    public CorazaWaf getPrimaryResource() {
+        return corazaWaf;
+    }
+
+    @Override
+    public Optional<RetryInfo> getRetryInfo() {
+        return Optional.empty();
+    }
+
+    @Override
+    public <R> Set<R> getSecondaryResources(Class<R> expectedType) {
+        return Set.of();
+    }
+
+    @Override
+    public <R> Optional<R> getSecondaryResource(Class<R> expectedType, String eventSourceName) {
+        return Optional.empty();
+    }
+
+    @Override
+    public ControllerConfiguration<CorazaWaf> getControllerConfiguration() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public EventSourceRetriever<CorazaWaf> eventSourceRetriever() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public KubernetesClient getClient() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ExecutorService getWorkflowExecutorService() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IndexedResourceCache<CorazaWaf> getPrimaryCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isNextReconciliationImminent() {
+        return false;
+    }
+
+    @Override
+    public boolean isPrimaryResourceDeleted() {
+        return false;
+    }
+
+    @Override
+    public boolean isPrimaryResourceFinalStateUnknown() {
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafBackend;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafSpec;
+import ch.usp.oss.corazawafoperator.v1.spec.crs.CorazaWafCrs;
+import ch.usp.oss.corazawafoperator.v1.spec.crs.CorazaWafCrsRequestRuleException;
+import ch.usp.oss.corazawafoperator.v1.spec.crs.CorazaWafCrsResponseRuleException;
+import ch.usp.oss.corazawafoperator.v1.spec.crs.CorazaWafPathSettings;
+import ch.usp.oss.corazawafoperator.v1.spec.crs.RequestRuleSet;
+import ch.usp.oss.corazawafoperator.v1.spec.crs.ResponseRuleSet;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * CorazaWaf specs of increasing size for the benchmarks.
+ */
+public enum BenchmarkSpecs {
+    /** A typical application: a handful of false positive exceptions and path settings */
+    REALISTIC(20, 10, 2, false),
+    /** A large application with many tuned paths */
+    LARGE(500, 50, 20, true),
+    /** Thousands of exceptions, hundreds of path settings and all rule sets enabled */
+    EXTREME(5000, 500, 200, true);
+
+    private static final String[] REQUEST_PART_TYPES = {null, "ARGS", "REQUEST_HEADERS", "REQUEST_COOKIES"};
+    private static final int[] RULE_IDS = {920100, 920270, 930120, 932100, 941100, 942100, 942200, 942440, 949110};
+    private static final CorazaWafPathSettings.HttpMethod[] METHODS = {
+            CorazaWafPathSettings.HttpMethod.PUT, CorazaWafPathSettings.HttpMethod.PATCH,
+            CorazaWafPathSettings.HttpMethod.DELETE};
+
+    private final int requestRuleExceptions;
+    private final int pathSettings;
+    private final int responseRuleExceptions;
+    private final boolean allRuleSets;
+
+    BenchmarkSpecs(int requestRuleExceptions, int pathSettings, int responseRuleExceptions, boolean allRuleSets) {
+        this.requestRuleExceptions = requestRuleExceptions;
+        this.pathSettings = pathSettings;
+        this.responseRuleExceptions = responseRuleExceptions;
+        this.allRuleSets = allRuleSets;
+    }
+
+    public CorazaWaf corazaWaf() {
+        CorazaWaf corazaWaf = new CorazaWaf();
+        corazaWaf.setMetadata(new ObjectMetaBuilder()
+                .withName("benchmark-" + name().toLowerCase())
+                .withNamespace("benchmark")
+                .withGeneration(1L)
+                .build());
+        corazaWaf.setSpec(spec());
+        return corazaWaf;
+    }
+
+    private CorazaWafSpec spec() {
+        List<CorazaWafCrsRequestRuleException> requestExceptions = new ArrayList<>(requestRuleExceptions);
+        for (int i = 0; i < requestRuleExceptions; i++) {
+            String partType = REQUEST_PART_TYPES[i % REQUEST_PART_TYPES.length];
+            requestExceptions.add(CorazaWafCrsRequestRuleException.builder()
+                    .ruleIds(List.of(RULE_IDS[i % RULE_IDS.length], RULE_IDS[(i + 3) % RULE_IDS.length]))
+                    .requestPartType(partType)
+                    .requestPartName(partType == null ? null : "param" + i)
+                    // several exceptions per path, as they accumulate while tuning an application
+                    .path("/api/v1/resource" + (i / 4))
+                    .build());
+        }
+        List<CorazaWafCrsResponseRuleException> responseExceptions = new ArrayList<>(responseRuleExceptions);
+        for (int i = 0; i < responseRuleExceptions; i++) {
+            responseExceptions.add(CorazaWafCrsResponseRuleException.builder()
+                    .ruleIds(List.of(950100, 951110 + i % 10))
+                    .path("/download/file" + i)
+                    .build());
+        }
+        List<CorazaWafPathSettings> settings = new ArrayList<>(pathSettings);
+        for (int i = 0; i < pathSettings; i++) {
+            settings.add(CorazaWafPathSettings.builder()
+                    .path("/api/v1/upload" + i)
+                    .allowedContentType(i % 2 == 0 ? "application/octet-stream" : null)
+                    .contentTypeParser(i % 2 == 0 ? null : CorazaWafPathSettings.ContentTypeParser.JSON)
+                    .allowedMethods(new TreeSet<>(Set.of(METHODS[i % METHODS.length])))
+                    .build());
+        }
+        Set<ResponseRuleSet> responseRuleSets = allRuleSets
+                ? Arrays.stream(ResponseRuleSet.values()).collect(Collectors.toCollection(TreeSet::new))
+                : new TreeSet<>();
+        return CorazaWafSpec.builder()
+                .backend(CorazaWafBackend.builder()
+                        .hostname("backend.benchmark.svc.cluster.local")
+                        .port(8080)
+                        .build())
+                .responseBodyAccess(allRuleSets)
+                .crs(CorazaWafCrs.builder()
+                        .enabledRequestRules(new TreeSet<>(Arrays.asList(RequestRuleSet.values())))
+                        .requestRuleExceptions(requestExceptions)
+                        .enabledResponseRules(responseRuleSets)
+                        .responseRuleExceptions(responseExceptions)
+                        .pathSettings(settings)
+                        .paranoiaLevel(CorazaWafCrs.ParanoiaLevel.builder()
+                                .enforcing(allRuleSets ? 4 : 1)
+                                .detecting(allRuleSets ? 4 : 1)
+                                .build())
+                        .build())
+                .build();
+    }
+}
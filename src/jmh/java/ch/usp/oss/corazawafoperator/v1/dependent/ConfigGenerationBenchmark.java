@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafEnvoyConfigTemplate;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafSharedGateway;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ArcContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating the desired state of a single CorazaWaf, from the listener template to the complete
+ * ConfigMap. Runs inside the Quarkus test application (see {@link ConfigGenerationBenchmarkRunner}), the
+ * Qute type-safe templates only work with the build time generated resolvers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConfigGenerationBenchmark {
+
+    @Param({"REALISTIC", "LARGE", "EXTREME"})
+    BenchmarkSpecs spec;
+
+    private CorazaWafEnvoyConfigTemplate templates;
+    private CorazaWafEnvoyConfigMapResource configMapResource;
+    private CorazaWafDeploymentResource deploymentResource;
+    private CorazaWaf corazaWaf;
+    private List<CorazaWafSharedGateway.Tenant> tenants;
+    private BenchmarkContext context;
+
+    @Setup
+    public void setup() {
+        ArcContainer container = Arc.container();
+        if (container == null) {
+            throw new IllegalStateException("No Quarkus application running, use ConfigGenerationBenchmarkRunner");
+        }
+        templates = container.instance(CorazaWafEnvoyConfigTemplate.class).get();
+        configMapResource = container.instance(CorazaWafEnvoyConfigMapResource.class).get();
+        deploymentResource = container.instance(CorazaWafDeploymentResource.class).get();
+        corazaWaf = spec.corazaWaf();
+        tenants = CorazaWafSharedGateway.tenants(corazaWaf, List.of());
+        context = new BenchmarkContext(corazaWaf);
+    }
+
+    @Benchmark
+    public String ldsYaml() {
+        return templates.getLDsYaml(corazaWaf, tenants);
+    }
+
+    @Benchmark
+    public Deployment deploymentDesired() {
+        return deploymentResource.desired(corazaWaf, context);
+    }
+
+    @Benchmark
+    public ConfigMap configMapDesired() {
+        return configMapResource.desired(corazaWaf, context);
+    }
+}
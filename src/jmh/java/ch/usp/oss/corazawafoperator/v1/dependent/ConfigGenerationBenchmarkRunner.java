@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks within the started Quarkus test application (without forking, the beans are only
+ * available in this JVM). JMH command line options are passed with -Djmh.args, e.g.
+ * <pre>
+ * ./mvnw test -Pbenchmark -Djmh.args="-prof gc -p spec=EXTREME -rf json -rff target/jmh.json"
+ * </pre>
+ */
+@QuarkusTest
+class ConfigGenerationBenchmarkRunner {
+
+    @Test
+    void run() throws Exception {
+        String args = System.getProperty("jmh.args", "").trim();
+        CommandLineOptions commandLine = new CommandLineOptions(args.isEmpty() ? new String[0] : args.split("\\s+"));
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .include(ConfigGenerationBenchmark.class.getName())
+                .forks(0)
+                .shouldFailOnError(true)
+                .build())
+                .run();
+    }
+}
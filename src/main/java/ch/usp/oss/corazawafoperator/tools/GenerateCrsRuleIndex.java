@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.tools;
+
+import ch.usp.oss.corazawafoperator.v1.spec.crs.CorazaWafCrs;
+import ch.usp.oss.corazawafoperator.v1.spec.crs.CrsRuleIndex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Tool generating the CRS rule index (see {@link CrsRuleIndex}) from the rule files of a CRS release. The build profile
+ * crs-rule-index ({@code ./mvnw process-classes -Pcrs-rule-index}) runs it on the release {@code crs.version} of the
+ * pom, which has to match {@link CorazaWafCrs#CRS_VERSION} (checked against the ver: actions of the rules), and
+ * writes it to src/main/resources, the generated index is committed. Manually:
+ * <pre>
+ * git clone --depth 1 --branch v&lt;CRS_VERSION&gt; https://github.com/coreruleset/coreruleset /tmp/coreruleset
+ * java -cp target/classes ch.usp.oss.corazawafoperator.tools.GenerateCrsRuleIndex /tmp/coreruleset/rules
+ * </pre>
+ */
+public final class GenerateCrsRuleIndex {
+
+	private static final Pattern ID = Pattern.compile("\\bid:(\\d+)");
+	private static final Pattern PHASE = Pattern.compile("\\bphase:(\\w+)");
+	private static final Pattern TAG = Pattern.compile("\\btag:'([^']*)'");
+	private static final Pattern VERSION = Pattern.compile("\\bver:'OWASP_CRS/([^']*)'");
+	private static final Pattern CHAIN = Pattern.compile("[\"',]\\s*chain\\s*[,\"']");
+	private static final String PARANOIA_TAG = "paranoia-level/";
+
+	private GenerateCrsRuleIndex() {}
+
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: GenerateCrsRuleIndex <crs rules directory> [<output file>]");
+			System.exit(1);
+		}
+		Path output = args.length > 1 ? Path.of(args[1])
+				: Path.of("src/main/resources", CrsRuleIndex.RESOURCE_PREFIX + CorazaWafCrs.CRS_VERSION + ".tsv");
+		Map<Integer, String> rules = new TreeMap<>();
+		try (Stream<Path> files = Files.list(Path.of(args[0]))) {
+			for (Path file : files.filter(f -> f.getFileName().toString().endsWith(".conf")).sorted().toList()) {
+				List<String> content = Files.readAllLines(file, StandardCharsets.UTF_8);
+				checkVersion(file, content);
+				parse(content, rules);
+			}
+		}
+		if (rules.isEmpty()) {
+			throw new IllegalStateException("No CRS rules found in " + args[0]);
+		}
+		List<String> lines = new ArrayList<>();
+		lines.add("# CRS " + CorazaWafCrs.CRS_VERSION + " rule index generated by " + GenerateCrsRuleIndex.class.getSimpleName());
+		lines.add("# id\tphase\tparanoia level\ttags");
+		rules.values().forEach(lines::add);
+		Files.createDirectories(output.toAbsolutePath().getParent());
+		Files.write(output, lines, StandardCharsets.UTF_8);
+		System.out.println("Wrote " + rules.size() + " rules to " + output);
+	}
+
+	/**
+	 * The index is looked up by {@link CorazaWafCrs#CRS_VERSION}, it must not be generated from another release.
+	 */
+	static void checkVersion(final Path file, final List<String> lines) {
+		for (String line : lines) {
+			Matcher version = VERSION.matcher(line);
+			if (version.find() && !version.group(1).equals(CorazaWafCrs.CRS_VERSION)) {
+				throw new IllegalStateException(file + " is of CRS " + version.group(1) + ", but CRS_VERSION is "
+						+ CorazaWafCrs.CRS_VERSION);
+			}
+		}
+	}
+
+	/**
+	 * Parses the SecRule/SecAction directives of a rule file, rules chained to a previous one have no own ID.
+	 */
+	static void parse(final List<String> lines, final Map<Integer, String> rules) {
+		StringBuilder directive = new StringBuilder();
+		boolean chained = false;
+		for (String line : lines) {
+			String trimmed = line.strip();
+			if (directive.isEmpty() && (trimmed.isEmpty() || trimmed.startsWith("#"))) {
+				continue;
+			}
+			if (trimmed.endsWith("\\")) {
+				directive.append(trimmed, 0, trimmed.length() - 1).append(' ');
+				continue;
+			}
+			directive.append(trimmed);
+			String text = directive.toString();
+			directive.setLength(0);
+			if (!text.startsWith("SecRule") && !text.startsWith("SecAction")) {
+				continue;
+			}
+			boolean isChainStart = CHAIN.matcher(text).find();
+			if (!chained) {
+				add(text, rules);
+			}
+			chained = isChainStart;
+		}
+	}
+
+	private static void add(final String directive, final Map<Integer, String> rules) {
+		Matcher id = ID.matcher(directive);
+		if (!id.find()) {
+			return;
+		}
+		Matcher phase = PHASE.matcher(directive);
+		List<String> tags = new ArrayList<>();
+		int paranoiaLevel = 1;
+		Matcher tag = TAG.matcher(directive);
+		while (tag.find()) {
+			tags.add(tag.group(1));
+			if (tag.group(1).startsWith(PARANOIA_TAG)) {
+				paranoiaLevel = Integer.parseInt(tag.group(1).substring(PARANOIA_TAG.length()));
+			}
+		}
+		int ruleId = Integer.parseInt(id.group(1));
+		rules.put(ruleId, ruleId + "\t" + (phase.find() ? phase(phase.group(1)) : 2) + "\t" + paranoiaLevel
+				+ "\t" + String.join(",", tags));
+	}
+
+	private static int phase(final String phase) {
+		return switch (phase) {
+			case "request" -> 2;
+			case "response" -> 4;
+			case "logging" -> 5;
+			default -> Integer.parseInt(phase);
+		};
+	}
+}
@@ -5,6 +5,7 @@ package ch.usp.oss.corazawafoperator.v1;
 
 import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafSpec;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.fabric8.crd.generator.annotation.AdditionalPrinterColumn;
 import io.fabric8.kubernetes.api.model.IntOrString;
 import io.fabric8.kubernetes.api.model.Namespaced;
 import io.fabric8.kubernetes.client.CustomResource;
@@ -15,6 +16,14 @@ import static ch.usp.oss.corazawafoperator.v1.CorazaWaf.VERSION;
 
 @Version(VERSION)
 @Group("oss.u-s-p.ch")
+@AdditionalPrinterColumn(name = "RPS", jsonPath = ".status.dataPlane.requestsPerSecond",
+        type = AdditionalPrinterColumn.Type.NUMBER, priority = 1)
+@AdditionalPrinterColumn(name = "Blocked", jsonPath = ".status.dataPlane.blockedRequestsPerSecond",
+        type = AdditionalPrinterColumn.Type.NUMBER, priority = 1)
+@AdditionalPrinterColumn(name = "P99ms", jsonPath = ".status.dataPlane.requestLatencyP99Ms",
+        type = AdditionalPrinterColumn.Type.NUMBER, priority = 1)
+@AdditionalPrinterColumn(name = "Overloaded", jsonPath = ".status.dataPlane.overloadedPods",
+        type = AdditionalPrinterColumn.Type.INTEGER, priority = 1)
 @SuppressWarnings("serial")
 public class CorazaWaf extends CustomResource<CorazaWafSpec, CorazaWafStatus> implements Namespaced {
 
@@ -23,6 +32,8 @@ public class CorazaWaf extends CustomResource<CorazaWafSpec, CorazaWafStatus> im
     public static final String OPERATOR_NAME = NAME_PREFIX + "operator";
     public static final IntOrString TRAFFIC_CONTAINER_PORT = new IntOrString(8080);
     public static final IntOrString ADMIN_CONTAINER_PORT = new IntOrString(9901);
+    /** Listener serving only the Prometheus metrics of the admin API, see envoy.yaml */
+    public static final IntOrString METRICS_CONTAINER_PORT = new IntOrString(9902);
 
     @JsonIgnore
     public CorazaWafStatus getStatusOrInit() {
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafBackend;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServicePort;
+import io.fabric8.kubernetes.api.model.discovery.v1.Endpoint;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointPort;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSlice;
+import io.javaoperatorsdk.operator.api.config.informer.InformerEventSourceConfiguration;
+import io.javaoperatorsdk.operator.api.reconciler.Context;
+import io.javaoperatorsdk.operator.api.reconciler.EventSourceContext;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import io.javaoperatorsdk.operator.processing.event.source.informer.InformerEventSource;
+import io.quarkus.qute.TemplateData;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the ready endpoints of the backend Service from its EndpointSlices (backend discovery ENDPOINTS).
+ */
+@JBossLog
+public class CorazaWafBackendEndpoints {
+
+    public static final String SERVICE_NAME_LABEL = "kubernetes.io/service-name";
+    /** Name of the event source watching the backend EndpointSlices */
+    public static final String EVENT_SOURCE = "corazawaf-backend-endpointslices";
+    /** Name of the primary cache index of the CRs by backend Service */
+    public static final String BACKEND_SERVICE_INDEX = "corazawaf-backend-service";
+    /** Key of the resolved endpoints in the managed workflow context */
+    public static final String CONTEXT_KEY = "corazawaf.backend.endpoints";
+
+    private static final int SERVICE_PORT_NAMES_MAX_ENTRIES = 256;
+    /** Service port name by backend Service, port and EndpointSlice port names, see {@link #servicePortName} */
+    private static final Map<String, Optional<String>> SERVICE_PORT_NAMES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Optional<String>> eldest) {
+            return size() > SERVICE_PORT_NAMES_MAX_ENTRIES;
+        }
+    };
+
+    private CorazaWafBackendEndpoints() {
+    }
+
+    @TemplateData
+    public record BackendEndpoint(String address, int port) implements Comparable<BackendEndpoint> {
+        @Override
+        public int compareTo(BackendEndpoint o) {
+            int c = address.compareTo(o.address);
+            return c != 0 ? c : Integer.compare(port, o.port);
+        }
+    }
+
+    /**
+     * Namespace and name of the backend Service, parsed from the backend hostname
+     * ('name', 'name.namespace' or 'name.namespace.svc[.cluster.local]').
+     */
+    public static ResourceID serviceId(CorazaWaf corazaWaf) {
+        String[] parts = corazaWaf.getSpec().getBackend().getHostname().split("\\.");
+        String namespace = parts.length > 1 ? parts[1] : corazaWaf.getMetadata().getNamespace();
+        return new ResourceID(parts[0], namespace);
+    }
+
+    public static boolean isEnabled(CorazaWaf corazaWaf) {
+        return corazaWaf.getSpec().getBackend().getDiscovery() == CorazaWafBackend.Discovery.ENDPOINTS;
+    }
+
+    private static String indexKey(ResourceID service) {
+        return service.getNamespace().orElse("") + "/" + service.getName();
+    }
+
+    /**
+     * Indexes the CRs using discovery ENDPOINTS by backend Service, so an EndpointSlice event is mapped without
+     * scanning all CRs. Has to be called before the primary cache is started (in prepareEventSources).
+     */
+    public static void addIndexer(EventSourceContext<CorazaWaf> context) {
+        context.getPrimaryCache().addIndexer(BACKEND_SERVICE_INDEX,
+                corazaWaf -> isEnabled(corazaWaf) ? List.of(indexKey(serviceId(corazaWaf))) : List.of());
+    }
+
+    /**
+     * Event source triggering a reconcile of all CRs using a Service whenever its EndpointSlices change.
+     * Only EndpointSlices owned by a Service (labeled with {@value #SERVICE_NAME_LABEL}) are watched.
+     */
+    static InformerEventSource<EndpointSlice, CorazaWaf> eventSource(EventSourceContext<CorazaWaf> context) {
+        var configuration = InformerEventSourceConfiguration.from(EndpointSlice.class, CorazaWaf.class)
+                .withName(EVENT_SOURCE)
+                .withLabelSelector(SERVICE_NAME_LABEL)
+                .withSecondaryToPrimaryMapper(endpointSlice -> {
+                    ResourceID service = new ResourceID(endpointSlice.getMetadata().getLabels().get(SERVICE_NAME_LABEL),
+                            endpointSlice.getMetadata().getNamespace());
+                    return context.getPrimaryCache().byIndex(BACKEND_SERVICE_INDEX, indexKey(service)).stream()
+                            .map(ResourceID::fromResource)
+                            .collect(Collectors.toSet());
+                })
+                .build();
+        return new InformerEventSource<>(configuration, context);
+    }
+
+    /**
+     * The EndpointSlice informer is registered with the first CR using discovery ENDPOINTS, so clusters not using it
+     * do not have to cache all EndpointSlices. It stays registered until the operator restarts.
+     */
+    private static void registerEventSource(Context<CorazaWaf> context) {
+        var retriever = context.eventSourceRetriever();
+        if (retriever.getEventSourcesFor(EndpointSlice.class).isEmpty()) {
+            log.infof("Registering the EndpointSlice event source %s", EVENT_SOURCE);
+            retriever.dynamicallyRegisterEventSource(eventSource(retriever.eventSourceContextForDynamicRegistration()));
+        }
+    }
+
+    /**
+     * Returns the sorted ready endpoints of the backend Service, or an empty list if discovery ENDPOINTS is not used.
+     */
+    public static List<BackendEndpoint> resolve(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+        if (!isEnabled(corazaWaf)) {
+            return List.of();
+        }
+        registerEventSource(context);
+        ResourceID serviceId = serviceId(corazaWaf);
+        List<EndpointSlice> endpointSlices = serviceEndpointSlices(
+                context.getSecondaryResourcesAsStream(EndpointSlice.class), serviceId);
+
+        String portName = null;
+        boolean multiplePorts = endpointSlices.stream().anyMatch(es -> es.getPorts() != null && es.getPorts().size() > 1);
+        if (multiplePorts) {
+            portName = servicePortName(corazaWaf, serviceId, endpointSlices, context);
+        }
+
+        List<BackendEndpoint> endpoints = readyEndpoints(endpointSlices, portName);
+        log.debugf("Resolved %d ready endpoints for backend Service %s", endpoints.size(), serviceId);
+        return endpoints;
+    }
+
+    /**
+     * The IPv4 EndpointSlices of the given Service. The event source caches the slices of all Services, including
+     * those of a previous backend of the CR, so they are selected by the Service name label and not only by namespace.
+     */
+    static List<EndpointSlice> serviceEndpointSlices(Stream<EndpointSlice> endpointSlices, ResourceID serviceId) {
+        return endpointSlices
+                .filter(es -> Objects.equals(es.getMetadata().getNamespace(), serviceId.getNamespace().orElse(null)))
+                .filter(es -> es.getMetadata().getLabels() != null
+                        && serviceId.getName().equals(es.getMetadata().getLabels().get(SERVICE_NAME_LABEL)))
+                .filter(es -> "IPv4".equals(es.getAddressType()))
+                .toList();
+    }
+
+    /**
+     * The sorted ready endpoints of the given EndpointSlices, with the port named portName if they have several.
+     */
+    static List<BackendEndpoint> readyEndpoints(List<EndpointSlice> endpointSlices, String portName) {
+        SortedSet<BackendEndpoint> endpoints = new TreeSet<>();
+        for (EndpointSlice endpointSlice : endpointSlices) {
+            Integer port = targetPort(endpointSlice, portName);
+            if (port == null || endpointSlice.getEndpoints() == null) {
+                continue;
+            }
+            for (Endpoint endpoint : endpointSlice.getEndpoints()) {
+                // an unknown ready condition has to be interpreted as ready
+                if (endpoint.getConditions() != null && Boolean.FALSE.equals(endpoint.getConditions().getReady())) {
+                    continue;
+                }
+                endpoint.getAddresses().forEach(address -> endpoints.add(new BackendEndpoint(address, port)));
+            }
+        }
+        return List.copyOf(endpoints);
+    }
+
+    private static Integer targetPort(EndpointSlice endpointSlice, String portName) {
+        List<EndpointPort> ports = endpointSlice.getPorts();
+        if (ports == null || ports.isEmpty()) {
+            return null;
+        }
+        if (ports.size() == 1) {
+            return ports.getFirst().getPort();
+        }
+        return ports.stream()
+                .filter(p -> Objects.equals(p.getName(), portName))
+                .map(EndpointPort::getPort)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * The EndpointSlice ports are named after the Service ports, so the Service is only read if the port names of
+     * its EndpointSlices (or the backend port) change, not on every reconcile.
+     */
+    private static String servicePortName(CorazaWaf corazaWaf, ResourceID serviceId, List<EndpointSlice> endpointSlices,
+                                          Context<CorazaWaf> context) {
+        int port = corazaWaf.getSpec().getBackend().getPort();
+        String key = indexKey(serviceId) + ":" + port + ":" + endpointSlices.stream()
+                .flatMap(es -> es.getPorts() == null ? Stream.<EndpointPort>empty() : es.getPorts().stream())
+                .map(p -> p.getName() + "=" + p.getPort())
+                .sorted()
+                .distinct()
+                .collect(Collectors.joining(","));
+        synchronized (SERVICE_PORT_NAMES) {
+            Optional<String> cached = SERVICE_PORT_NAMES.get(key);
+            if (cached != null) {
+                return cached.orElse(null);
+            }
+        }
+        Service service = context.getClient().services()
+                .inNamespace(serviceId.getNamespace().orElseThrow())
+                .withName(serviceId.getName())
+                .get();
+        if (service == null) {
+            return null;
+        }
+        Optional<String> portName = service.getSpec().getPorts().stream()
+                .filter(p -> p.getPort() == port)
+                .map(ServicePort::getName)
+                .filter(Objects::nonNull)
+                .findFirst();
+        synchronized (SERVICE_PORT_NAMES) {
+            SERVICE_PORT_NAMES.put(key, portName);
+        }
+        return portName.orElse(null);
+    }
+}
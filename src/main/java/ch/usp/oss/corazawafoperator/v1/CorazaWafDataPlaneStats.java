@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafDeploymentResource;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Scrapes the Envoy admin /stats of the WAF pods and aggregates them into {@link CorazaWafDataPlaneStatus}.
+ * <p>
+ * Counters are kept per pod from one scrape to the next to derive rates, a pod restart (decreasing counters)
+ * only drops the rates of that pod for one interval.
+ */
+@JBossLog
+@ApplicationScoped
+public class CorazaWafDataPlaneStats {
+
+    private static final String HCM_PREFIX = "http.corazawaf.";
+    private static final String CLUSTER_PREFIX = "cluster." + CorazaWafSharedGateway.DEFAULT_CLUSTER;
+    private static final String REQUEST_TIME = HCM_PREFIX + "downstream_rq_time";
+    private static final String HEAP_PRESSURE = "overload.envoy.resource_monitors.fixed_heap.pressure";
+    private static final String OVERLOAD_ACTION_PREFIX = "overload.envoy.overload_actions.";
+    private static final String OVERLOAD_ACTION_SCALE = ".scale_percent";
+    private static final String STATS_PATH = "/stats?format=json&usedonly&filter="
+            + URLEncoder.encode("^(http\\.corazawaf\\.downstream_rq|cluster\\.corazawaf\\.cluster\\.backend.*\\.upstream_rq_|overload\\.)",
+            StandardCharsets.UTF_8);
+    private static final Duration TIMEOUT = Duration.ofSeconds(3);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<ResourceID, Map<String, PodSample>> previousSamples = new ConcurrentHashMap<>();
+
+    /**
+     * Counters, latency quantiles and overload state of one pod.
+     */
+    record PodSample(long timeMillis, long requests, long local4xx, long upstreamRequests, long upstream5xx,
+                     Double p50, Double p99, Double heapPressure, Set<String> overloadActions) {
+    }
+
+    /**
+     * Scrapes all ready WAF pods of the given CR in parallel, pods not answering within {@link #TIMEOUT} overall are
+     * left out. Returns a status with 0 pods if none could be scraped.
+     */
+    public CorazaWafDataPlaneStatus scrape(KubernetesClient client, CorazaWaf corazaWaf) {
+        ResourceID resourceID = ResourceID.fromResource(corazaWaf);
+        Map<String, PodSample> previous = previousSamples.getOrDefault(resourceID, Map.of());
+        Map<String, CompletableFuture<PodSample>> scrapes = new HashMap<>();
+        try {
+            for (Pod pod : client.pods().inNamespace(corazaWaf.getMetadata().getNamespace())
+                    .withLabels(CorazaWafDeploymentResource.selectorLabels(corazaWaf)).list().getItems()) {
+                if (isReady(pod)) {
+                    scrapes.put(pod.getMetadata().getName(), scrapePod(pod.getStatus().getPodIP()));
+                }
+            }
+        } catch (KubernetesClientException e) {
+            log.warnf("Unable to list WAF pods of %s: %s", resourceID, e.getMessage());
+        }
+        try {
+            CompletableFuture.allOf(scrapes.values().toArray(CompletableFuture[]::new))
+                    .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // failed and late pods are skipped below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Map<String, PodSample> current = new HashMap<>();
+        scrapes.forEach((pod, scrape) -> {
+            if (scrape.isDone() && !scrape.isCompletedExceptionally()) {
+                current.put(pod, scrape.join());
+            } else {
+                scrape.cancel(true);
+                log.debugf("Unable to scrape stats of pod %s/%s: %s", resourceID.getNamespace().orElse(""), pod,
+                        scrape.isCompletedExceptionally() ? scrape.exceptionNow().getMessage() : "timeout");
+            }
+        });
+        previousSamples.put(resourceID, current);
+        return aggregate(previous, current, Instant.now());
+    }
+
+    public void forget(ResourceID resourceID) {
+        previousSamples.remove(resourceID);
+    }
+
+    static CorazaWafDataPlaneStatus aggregate(Map<String, PodSample> previous, Map<String, PodSample> current,
+                                              Instant now) {
+        double seconds = 0;
+        long requests = 0;
+        long local4xx = 0;
+        long upstreamRequests = 0;
+        long upstream5xx = 0;
+        boolean rates = false;
+        Double p50 = null;
+        Double p99 = null;
+        Double heapPressure = null;
+        int overloadedPods = 0;
+        Set<String> overloadActions = new TreeSet<>();
+        for (Map.Entry<String, PodSample> entry : current.entrySet()) {
+            PodSample sample = entry.getValue();
+            p50 = max(p50, sample.p50());
+            p99 = max(p99, sample.p99());
+            heapPressure = max(heapPressure, sample.heapPressure());
+            if (!sample.overloadActions().isEmpty()) {
+                overloadedPods++;
+                overloadActions.addAll(sample.overloadActions());
+            }
+            PodSample before = previous.get(entry.getKey());
+            if (before == null || sample.timeMillis() <= before.timeMillis() || sample.requests() < before.requests()) {
+                // new or restarted pod
+                continue;
+            }
+            rates = true;
+            // pods are scraped in parallel, the interval of the first one is good enough for all
+            if (seconds == 0) {
+                seconds = (sample.timeMillis() - before.timeMillis()) / 1000.0;
+            }
+            requests += sample.requests() - before.requests();
+            local4xx += Math.max(0, sample.local4xx() - before.local4xx());
+            upstreamRequests += Math.max(0, sample.upstreamRequests() - before.upstreamRequests());
+            upstream5xx += Math.max(0, sample.upstream5xx() - before.upstream5xx());
+        }
+        return CorazaWafDataPlaneStatus.builder()
+                .pods(current.size())
+                .requestLatencyP50Ms(p50)
+                .requestLatencyP99Ms(p99)
+                .requestsPerSecond(rates ? round(requests / seconds) : null)
+                .blockedRequestsPerSecond(rates ? round(local4xx / seconds) : null)
+                .upstreamErrorRate(rates && upstreamRequests > 0 ? round((double) upstream5xx / upstreamRequests) : null)
+                .heapPressure(heapPressure)
+                .overloadedPods(overloadedPods)
+                .overloadActions(overloadActions.isEmpty() ? null : List.copyOf(overloadActions))
+                .scrapeTime(now.toString())
+                .build();
+    }
+
+    /**
+     * Whether the scraped status has the same values as the previous one, only the scrape time differs.
+     */
+    static boolean isUnchanged(CorazaWafDataPlaneStatus previous, CorazaWafDataPlaneStatus current) {
+        return previous != null && previous.equals(current.toBuilder().scrapeTime(previous.getScrapeTime()).build());
+    }
+
+    private CompletableFuture<PodSample> scrapePod(String podIp) {
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://" + podIp + ":" + CorazaWaf.ADMIN_CONTAINER_PORT.getIntVal() + STATS_PATH))
+                .timeout(TIMEOUT)
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if (response.statusCode() != 200) {
+                throw new CompletionException(new IOException("HTTP " + response.statusCode()));
+            }
+            try {
+                return parse(objectMapper.readTree(response.body()), System.currentTimeMillis());
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Parses the JSON of /stats?format=json. Counters of all backend clusters (shared gateway members included)
+     * are summed. Blocked requests are the downstream 4xx which were not returned by a backend. Overload actions
+     * are active if they are scaling or saturated.
+     */
+    static PodSample parse(JsonNode stats, long timeMillis) {
+        long requests = 0;
+        long downstream4xx = 0;
+        long upstreamRequests = 0;
+        long upstream4xx = 0;
+        long upstream5xx = 0;
+        Double p50 = null;
+        Double p99 = null;
+        Double heapPressure = null;
+        Set<String> overloadActions = new TreeSet<>();
+        for (JsonNode stat : stats.path("stats")) {
+            if (stat.has("histograms")) {
+                JsonNode histograms = stat.get("histograms");
+                JsonNode quantiles = histograms.path("supported_quantiles");
+                for (JsonNode histogram : histograms.path("computed_quantiles")) {
+                    if (REQUEST_TIME.equals(histogram.path("name").asText())) {
+                        p50 = quantile(quantiles, histogram.path("values"), 50);
+                        p99 = quantile(quantiles, histogram.path("values"), 99);
+                    }
+                }
+                continue;
+            }
+            String name = stat.path("name").asText();
+            long value = stat.path("value").asLong();
+            if (name.equals(HCM_PREFIX + "downstream_rq_total")) {
+                requests = value;
+            } else if (name.equals(HCM_PREFIX + "downstream_rq_4xx")) {
+                downstream4xx = value;
+            } else if (name.equals(HEAP_PRESSURE)) {
+                heapPressure = round(value / 100.0);
+            } else if (name.startsWith(OVERLOAD_ACTION_PREFIX) && name.endsWith(OVERLOAD_ACTION_SCALE)) {
+                if (value > 0) {
+                    overloadActions.add(name.substring(OVERLOAD_ACTION_PREFIX.length(),
+                            name.length() - OVERLOAD_ACTION_SCALE.length()));
+                }
+            } else if (name.startsWith(CLUSTER_PREFIX)) {
+                if (name.endsWith(".upstream_rq_total")) {
+                    upstreamRequests += value;
+                } else if (name.endsWith(".upstream_rq_4xx")) {
+                    upstream4xx += value;
+                } else if (name.endsWith(".upstream_rq_5xx")) {
+                    upstream5xx += value;
+                }
+            }
+        }
+        return new PodSample(timeMillis, requests, Math.max(0, downstream4xx - upstream4xx),
+                upstreamRequests, upstream5xx, p50, p99, heapPressure, overloadActions);
+    }
+
+    /**
+     * Value of the given quantile, of the last stats flush interval or, if there were no requests in it, of the
+     * whole lifetime of the pod.
+     */
+    private static Double quantile(JsonNode supportedQuantiles, JsonNode values, double quantile) {
+        for (int i = 0; i < supportedQuantiles.size(); i++) {
+            if (supportedQuantiles.get(i).asDouble() == quantile) {
+                JsonNode value = values.path(i);
+                JsonNode interval = value.path("interval");
+                JsonNode cumulative = value.path("cumulative");
+                if (interval.isNumber()) {
+                    return round(interval.asDouble());
+                }
+                return cumulative.isNumber() ? round(cumulative.asDouble()) : null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isReady(Pod pod) {
+        return pod.getStatus() != null && pod.getStatus().getPodIP() != null
+                && pod.getStatus().getConditions().stream()
+                .anyMatch(c -> "Ready".equals(c.getType()) && "True".equals(c.getStatus()));
+    }
+
+    private static Double max(Double a, Double b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : Math.max(a, b);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
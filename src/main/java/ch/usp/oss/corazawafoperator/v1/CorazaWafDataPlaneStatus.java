@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Latency and throughput of the WAF pods, aggregated from the Envoy /stats of all ready pods.
+ * Rates are averaged over the time since the previous scrape, they are missing after the first scrape.
+ * The latencies are the Envoy downstream request time (Coraza filter and backend), the Coraza Go filter does not
+ * publish stats of its own.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CorazaWafDataPlaneStatus {
+    /** Number of pods which were scraped successfully */
+    private Integer pods;
+    /** Median downstream request time in ms (highest of all pods) */
+    private Double requestLatencyP50Ms;
+    /** 99th percentile of the downstream request time in ms (highest of all pods) */
+    private Double requestLatencyP99Ms;
+    /** Downstream requests per second (sum of all pods) */
+    private Double requestsPerSecond;
+    /** Requests per second answered with 4xx by Envoy itself (mostly blocked by Coraza) without asking the backend */
+    private Double blockedRequestsPerSecond;
+    /** Share of the upstream requests answered with 5xx (0..1) */
+    private Double upstreamErrorRate;
+    /** Envoy heap usage relative to the overload manager limit (0..1, highest of all pods), if a memory limit is set */
+    private Double heapPressure;
+    /** Number of pods shedding load (any overload action active) */
+    private Integer overloadedPods;
+    /** Overload actions active in any pod, e.g. stop_accepting_connections */
+    private List<String> overloadActions;
+    /** Time of the scrape which last changed any of the values (ISO-8601) */
+    private String scrapeTime;
+}
@@ -3,14 +3,31 @@
  */
 package ch.usp.oss.corazawafoperator.v1;
 
-import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafBackend;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafBackendEndpoints.BackendEndpoint;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafSharedGateway.Tenant;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafXdsServer.XdsBootstrap;
+import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafDeploymentResource;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafSpec;
+import ch.usp.oss.corazawafoperator.v1.spec.crs.CorazaWafCrs;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import io.quarkus.qute.*;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 import static ch.usp.oss.corazawafoperator.v1.CorazaWaf.ADMIN_CONTAINER_PORT;
+import static ch.usp.oss.corazawafoperator.v1.CorazaWaf.METRICS_CONTAINER_PORT;
 import static ch.usp.oss.corazawafoperator.v1.CorazaWaf.TRAFFIC_CONTAINER_PORT;
 import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafEnvoyConfigMapResource.FILENAME_CDS;
+import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafEnvoyConfigMapResource.FILENAME_EDS;
+import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafEnvoyConfigMapResource.FILENAME_ENVOY;
 import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafEnvoyConfigMapResource.FILENAME_LDS;
 import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafDeploymentResource.ENVOY_CONFIG_PATH;
 
@@ -18,32 +35,199 @@ import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafDeploymentResou
 public class CorazaWafEnvoyConfigTemplate {
 
     record envoy(EnvoyTemplateData envoyTemplateData) implements TemplateInstance {}
-    record lds( CorazaWaf corazaWaf, int trafficPort, String goFilterPath)implements TemplateInstance {}
-    record cds( CorazaWafBackend backend) implements TemplateInstance {}
+    record lds( CorazaWaf corazaWaf, List<Tenant> tenants, Map<String, TenantRules> tenantRules, boolean rateLimited, boolean bypassed, String hostDirectiveMap, int trafficPort, String goFilterPath, String versionInfo)implements TemplateInstance {}
+    record cds( List<Tenant> tenants, String edsPath, String xdsPath, XdsBootstrap xds, String versionInfo) implements TemplateInstance {}
+    record eds( List<BackendEndpoint> endpoints, String versionInfo) implements TemplateInstance {}
+    record ruleExceptions( CorazaWafSpec spec) implements TemplateInstance {}
+    record pathSettings( CorazaWafSpec spec) implements TemplateInstance {}
+
+    /** Prefix of the Coraza rule files in the Envoy config directory */
+    public static final String RULE_FILE_PREFIX = "coraza-";
 
     @ConfigProperty(name = "corazawaf.gofilter.path")
     String goFilterPath;
 
-    public String getEnvoyYaml() {
-        EnvoyTemplateData data = new EnvoyTemplateData(
+    @ConfigProperty(name = "corazawaf.rendercache.size", defaultValue = "512")
+    int renderCacheSize;
+
+    @ConfigProperty(name = "corazawaf.rulefiles.threshold", defaultValue = "100")
+    int ruleFilesThreshold;
+
+    @Inject
+    CorazaWafMetrics metrics;
+
+    @Inject
+    CorazaWafXdsServer xdsServer;
+
+    private RenderCache ldsCache;
+    private RenderCache cdsCache;
+    private RenderCache rulesCache;
+    private RenderCache envoyCache;
+
+    @PostConstruct
+    void init() {
+        ldsCache = new RenderCache(FILENAME_LDS, renderCacheSize);
+        cdsCache = new RenderCache(FILENAME_CDS, renderCacheSize);
+        rulesCache = new RenderCache("rules", renderCacheSize);
+        envoyCache = new RenderCache(FILENAME_ENVOY, renderCacheSize);
+        metrics.registerRenderCache(ldsCache);
+        metrics.registerRenderCache(cdsCache);
+        metrics.registerRenderCache(rulesCache);
+        metrics.registerRenderCache(envoyCache);
+    }
+
+    /**
+     * Data of the bootstrap config of the given CR. Envoy only reads it at startup, so the WAF pods are
+     * restarted whenever it changes (see {@link CorazaWafDeploymentResource}).
+     */
+    public EnvoyTemplateData envoyTemplateData(CorazaWaf corazaWaf) {
+        CorazaWafSpec spec = corazaWaf.getSpec();
+        return new EnvoyTemplateData(
                 ADMIN_CONTAINER_PORT.getIntVal(),
                 ENVOY_CONFIG_PATH,
                 FILENAME_LDS,
-                FILENAME_CDS
+                FILENAME_CDS,
+                spec.getResources().overloadMaxHeapSizeBytes(CorazaWafDeploymentResource.corazaHeapBytes(spec),
+                        CorazaWafDeploymentResource.memoryVolumesBytes(spec)),
+                spec.getResources().getMaxConnections(),
+                spec.getTelemetry().isMetricsServiceEnabled() ? METRICS_CONTAINER_PORT.getIntVal() : null,
+                xdsServer.bootstrap(corazaWaf)
         );
+    }
 
-        return new envoy(data).render();
+    public String getEnvoyYaml(CorazaWaf corazaWaf) {
+        // only depends on the few values of the template data, all CRs with the same share one rendered config
+        // (unless served by the xDS server, which identifies each CR)
+        EnvoyTemplateData data = envoyTemplateData(corazaWaf);
+        return envoyCache.get(Utils.digest(data),
+                () -> metrics.timeRender(FILENAME_ENVOY, () -> new envoy(data).render()));
     }
 
-    public String getCdsYaml(CorazaWafBackend backend) {
-        return new cds(backend).render();
+    public String getCdsYaml(CorazaWaf corazaWaf, List<Tenant> tenants) {
+        XdsBootstrap xds = xdsServer.bootstrap(corazaWaf);
+        String digest = Utils.digest(tenants.stream().map(t -> List.of(t.clusterName(), t.spec().getBackend())).toList(),
+                xds == null ? "" : xds.requestTimeoutSeconds());
+        return cdsCache.get(digest,
+                () -> metrics.timeRender(FILENAME_CDS,
+                        () -> new cds(tenants, ENVOY_CONFIG_PATH + FILENAME_EDS, ENVOY_CONFIG_PATH, xds, digest).render()));
     }
 
-    public String getLDsYaml(CorazaWaf corazaWaf) {
-        return  new lds( corazaWaf, TRAFFIC_CONTAINER_PORT.getIntVal(), this.goFilterPath).render();
+    public String getEdsYaml(List<BackendEndpoint> endpoints) {
+        // endpoints change independently of the spec and the output is small, no caching
+        return metrics.timeRender(FILENAME_EDS, () -> new eds(endpoints, Utils.digest(endpoints)).render());
+    }
+
+    public String getLDsYaml(CorazaWaf corazaWaf, List<Tenant> tenants) {
+        // the listener only depends on the specs of the tenants (and the operator wide go filter path),
+        // the digest doubles as xDS version, so the applied config can be identified in Envoy's config_dump
+        String digest = Utils.digest(tenants, this.goFilterPath, this.ruleFilesThreshold, xdsServer.isEnabled());
+        return ldsCache.get(digest,
+                () -> metrics.timeRender(FILENAME_LDS,
+                        () -> new lds( corazaWaf, tenants, tenantRules(tenants),
+                                tenants.stream().anyMatch(tenant -> tenant.spec().getRateLimit().isEnabled()),
+                                // bypass routes must match the path as the backend resolves it, otherwise e.g.
+                                // /static/../admin or /static/%2e%2e/admin would skip the Coraza filter
+                                tenants.stream().anyMatch(tenant -> !tenant.spec().getBypassPaths().isEmpty()),
+                                CorazaWafSharedGateway.hostDirectiveMap(tenants),
+                                TRAFFIC_CONTAINER_PORT.getIntVal(), this.goFilterPath, digest).render()));
+    }
+
+    /**
+     * The Coraza rule files of the tenants with more than {@code corazawaf.rulefiles.threshold} exception and path
+     * setting rules, to be placed next to lds.yaml (file name -> content).
+     */
+    public Map<String, String> getRuleFiles(List<Tenant> tenants) {
+        Map<String, String> files = new LinkedHashMap<>();
+        for (Tenant tenant : tenants) {
+            if (hasRuleFiles(tenant.spec())) {
+                RuleFile exceptions = ruleExceptionsFile(tenant);
+                RuleFile pathSettings = pathSettingsFile(tenant);
+                files.put(exceptions.name(), exceptions.content());
+                files.put(pathSettings.name(), pathSettings.content());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * The exception and path setting directives of each tenant (by directive name), JSON encoded for the
+     * directives of the Coraza filter: either the rules themselves or the Include of their rule file.
+     */
+    private Map<String, TenantRules> tenantRules(List<Tenant> tenants) {
+        Map<String, TenantRules> rules = new HashMap<>();
+        for (Tenant tenant : tenants) {
+            if (hasRuleFiles(tenant.spec())) {
+                rules.put(tenant.directiveName(), new TenantRules(
+                        List.of(jsonString("Include " + ENVOY_CONFIG_PATH + ruleExceptionsFile(tenant).name())),
+                        List.of(jsonString("Include " + ENVOY_CONFIG_PATH + pathSettingsFile(tenant).name()))));
+            } else {
+                rules.put(tenant.directiveName(), new TenantRules(
+                        jsonLines(new ruleExceptions(tenant.spec()).render()),
+                        jsonLines(new pathSettings(tenant.spec()).render())));
+            }
+        }
+        return rules;
+    }
+
+    private boolean hasRuleFiles(CorazaWafSpec spec) {
+        if (xdsServer.isEnabled()) {
+            // a pushed listener must not include rule files the kubelet has not synced yet
+            return false;
+        }
+        CorazaWafCrs crs = spec.getCrs();
+        return crs.getRequestRuleExceptions().size() + crs.getResponseRuleExceptions().size()
+                + crs.getPathSettings().size() > ruleFilesThreshold;
+    }
+
+    private RuleFile ruleExceptionsFile(Tenant tenant) {
+        return ruleFile(tenant, "exceptions", () -> new ruleExceptions(tenant.spec()).render());
+    }
+
+    private RuleFile pathSettingsFile(Tenant tenant) {
+        return ruleFile(tenant, "pathsettings", () -> new pathSettings(tenant.spec()).render());
+    }
+
+    /**
+     * The file name contains the digest of the content, so Envoy sees a changed listener (and Coraza reloads
+     * the rules) whenever the content changes.
+     */
+    private RuleFile ruleFile(Tenant tenant, String kind, Supplier<String> renderer) {
+        String key = Utils.digest(kind, tenant.spec().getCrs());
+        String content = rulesCache.get(key, () -> metrics.timeRender(kind, renderer));
+        String name = RULE_FILE_PREFIX + tenant.directiveName() + "-" + kind + "-"
+                + Utils.digest(content).substring(0, 12) + ".conf";
+        return new RuleFile(name, content);
+    }
+
+    private static List<String> jsonLines(String rules) {
+        return rules.lines().filter(line -> !line.isBlank()).map(CorazaWafEnvoyConfigTemplate::jsonString).toList();
+    }
+
+    private static String jsonString(String value) {
+        return new String(JsonStringEncoder.getInstance().quoteAsString(value));
+    }
+
+    public RenderCache getLdsCache() {
+        return ldsCache;
+    }
+
+    public RenderCache getCdsCache() {
+        return cdsCache;
+    }
+
+    private record RuleFile(String name, String content) {
+    }
+
+    /**
+     * JSON encoded directives of a tenant, see {@link #tenantRules(List)}.
+     */
+    @TemplateData
+    public record TenantRules(List<String> exceptions, List<String> pathSettings) {
     }
 
     @TemplateData
-    public record EnvoyTemplateData(int adminPort, String xdsPath, String ldsFilename, String cdsFilename) {
+    public record EnvoyTemplateData(int adminPort, String xdsPath, String ldsFilename, String cdsFilename,
+                                    Long overloadMaxHeapSizeBytes, int maxConnections, Integer metricsPort,
+                                    XdsBootstrap xds) {
     }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.javaoperatorsdk.operator.api.monitoring.Metrics;
+import io.javaoperatorsdk.operator.api.reconciler.RetryInfo;
+import io.javaoperatorsdk.operator.monitoring.micrometer.MicrometerMetrics;
+import io.javaoperatorsdk.operator.processing.Controller;
+import io.javaoperatorsdk.operator.processing.event.Event;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import io.javaoperatorsdk.operator.processing.event.source.controller.ResourceAction;
+import io.javaoperatorsdk.operator.processing.event.source.controller.ResourceEvent;
+import io.micrometer.core.instrument.*;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Operator metrics, exposed by Micrometer on /q/metrics.
+ * <p>
+ * Timers use a fixed set of service level buckets instead of percentile histograms and the per CR meters
+ * (tags namespace and name) are removed when the CR is deleted, so the number of series stays proportional
+ * to the number of CRs. The per CR tags can be switched off with {@code corazawaf.metrics.resource-tags.enabled}.
+ */
+@JBossLog
+@ApplicationScoped
+public class CorazaWafMetrics {
+
+    public static final String RECONCILE_DURATION = "corazawaf.reconcile.duration";
+    public static final String RECONCILE_ERRORS = "corazawaf.reconcile.errors";
+    public static final String DEPENDENT_DESIRED_DURATION = "corazawaf.dependent.desired.duration";
+    public static final String DEPENDENT_APPLY_DURATION = "corazawaf.dependent.apply.duration";
+    public static final String RENDER_DURATION = "corazawaf.render.duration";
+    public static final String CONFIG_SIZE = "corazawaf.config.size";
+    public static final String RENDER_CACHE = "corazawaf.rendercache";
+
+    private static final String TAG_NAMESPACE = "namespace";
+    private static final String TAG_NAME = "name";
+
+    private static final Duration[] DURATION_BUCKETS = {
+            Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50),
+            Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+            Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofSeconds(10)
+    };
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "corazawaf.metrics.resource-tags.enabled", defaultValue = "true")
+    boolean resourceTags;
+
+    private final Map<ResourceID, Set<Meter.Id>> resourceMeters = new ConcurrentHashMap<>();
+    private final Map<ResourceID, Map<String, AtomicLong>> configSizes = new ConcurrentHashMap<>();
+
+    public void registerRenderCache(RenderCache cache) {
+        Tags tags = Tags.of("template", cache.getName());
+        FunctionCounter.builder(RENDER_CACHE + ".hits", cache, RenderCache::getHits).tags(tags).register(registry);
+        FunctionCounter.builder(RENDER_CACHE + ".misses", cache, RenderCache::getMisses).tags(tags).register(registry);
+        FunctionCounter.builder(RENDER_CACHE + ".evictions", cache, RenderCache::getEvictions).tags(tags).register(registry);
+        Gauge.builder(RENDER_CACHE + ".size", cache, RenderCache::size).tags(tags).register(registry);
+    }
+
+    /**
+     * JOSDK metrics (reconciliations, events, queue size, failures) without per resource tags, which would
+     * otherwise create a set of series per CR that is never cleaned up (the reconciler has no Cleaner).
+     */
+    @Produces
+    @Singleton
+    Metrics operatorMetrics() {
+        return new ResourceCleanupMetrics(MicrometerMetrics.withoutPerResourceMetrics(registry));
+    }
+
+    public <T> T timeReconcile(CorazaWaf corazaWaf, Callable<T> reconcile) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        String result = "success";
+        try {
+            return reconcile.call();
+        } catch (Exception e) {
+            result = "error";
+            counter(RECONCILE_ERRORS, corazaWaf, Tags.of("exception", e.getClass().getSimpleName())).increment();
+            throw e;
+        } finally {
+            sample.stop(timer(RECONCILE_DURATION, corazaWaf, Tags.of("result", result)));
+        }
+    }
+
+    public <T> T timeDesired(Class<?> dependent, CorazaWaf corazaWaf, Supplier<T> desired) {
+        return timer(DEPENDENT_DESIRED_DURATION, corazaWaf, Tags.of("dependent", dependent.getSimpleName()))
+                .record(desired);
+    }
+
+    public <T> T timeApply(Class<?> dependent, String operation, CorazaWaf corazaWaf, Supplier<T> apply) {
+        return timer(DEPENDENT_APPLY_DURATION, corazaWaf,
+                Tags.of("dependent", dependent.getSimpleName(), "operation", operation))
+                .record(apply);
+    }
+
+    /**
+     * Times rendering of the given template, only cache misses reach here.
+     */
+    public String timeRender(String template, Supplier<String> render) {
+        return Timer.builder(RENDER_DURATION)
+                .tags("template", template)
+                .serviceLevelObjectives(DURATION_BUCKETS)
+                .register(registry)
+                .record(render);
+    }
+
+    /**
+     * Size of a rendered config file, only recorded with per CR tags (a gauge over all CRs would be meaningless).
+     */
+    public void recordConfigSize(CorazaWaf corazaWaf, String file, long bytes) {
+        if (!resourceTags) {
+            return;
+        }
+        ResourceID resourceID = ResourceID.fromResource(corazaWaf);
+        configSizes.computeIfAbsent(resourceID, key -> new ConcurrentHashMap<>()).computeIfAbsent(file, key -> {
+            AtomicLong value = new AtomicLong();
+            Gauge gauge = Gauge.builder(CONFIG_SIZE, value, AtomicLong::get)
+                    .tags(TAG_NAMESPACE, corazaWaf.getMetadata().getNamespace(),
+                            TAG_NAME, corazaWaf.getMetadata().getName(),
+                            "file", file)
+                    .baseUnit("bytes")
+                    .register(registry);
+            resourceMeters.computeIfAbsent(resourceID, id -> ConcurrentHashMap.newKeySet()).add(gauge.getId());
+            return value;
+        }).set(bytes);
+    }
+
+    /**
+     * Removes the meters of a deleted CR.
+     */
+    public void remove(ResourceID resourceID) {
+        configSizes.remove(resourceID);
+        Set<Meter.Id> ids = resourceMeters.remove(resourceID);
+        if (ids != null) {
+            ids.forEach(registry::remove);
+            log.debugf("Removed %d meters of %s", ids.size(), resourceID);
+        }
+    }
+
+    private Timer timer(String name, CorazaWaf corazaWaf, Tags tags) {
+        Timer timer = Timer.builder(name)
+                .tags(resourceTags(corazaWaf).and(tags))
+                .serviceLevelObjectives(DURATION_BUCKETS)
+                .register(registry);
+        remember(corazaWaf, timer.getId());
+        return timer;
+    }
+
+    private Counter counter(String name, CorazaWaf corazaWaf, Tags tags) {
+        Counter counter = Counter.builder(name)
+                .tags(resourceTags(corazaWaf).and(tags))
+                .register(registry);
+        remember(corazaWaf, counter.getId());
+        return counter;
+    }
+
+    private Tags resourceTags(CorazaWaf corazaWaf) {
+        if (!resourceTags) {
+            return Tags.empty();
+        }
+        return Tags.of(TAG_NAMESPACE, corazaWaf.getMetadata().getNamespace(),
+                TAG_NAME, corazaWaf.getMetadata().getName());
+    }
+
+    private void remember(CorazaWaf corazaWaf, Meter.Id id) {
+        if (resourceTags) {
+            resourceMeters.computeIfAbsent(ResourceID.fromResource(corazaWaf), key -> ConcurrentHashMap.newKeySet())
+                    .add(id);
+        }
+    }
+
+    /**
+     * Delegates to the JOSDK metrics and removes the meters of CRs on their delete event.
+     */
+    private class ResourceCleanupMetrics implements Metrics {
+
+        private final Metrics delegate;
+
+        ResourceCleanupMetrics(Metrics delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void controllerRegistered(Controller<? extends HasMetadata> controller) {
+            delegate.controllerRegistered(controller);
+        }
+
+        @Override
+        public void receivedEvent(Event event, Map<String, Object> metadata) {
+            delegate.receivedEvent(event, metadata);
+            if (event instanceof ResourceEvent resourceEvent && resourceEvent.getAction() == ResourceAction.DELETED) {
+                remove(event.getRelatedCustomResourceID());
+            }
+        }
+
+        @Override
+        public void reconcileCustomResource(HasMetadata resource, RetryInfo retryInfo, Map<String, Object> metadata) {
+            delegate.reconcileCustomResource(resource, retryInfo, metadata);
+        }
+
+        @Override
+        public void failedReconciliation(HasMetadata resource, Exception exception, Map<String, Object> metadata) {
+            delegate.failedReconciliation(resource, exception, metadata);
+        }
+
+        @Override
+        public void reconciliationExecutionStarted(HasMetadata resource, Map<String, Object> metadata) {
+            delegate.reconciliationExecutionStarted(resource, metadata);
+        }
+
+        @Override
+        public void reconciliationExecutionFinished(HasMetadata resource, Map<String, Object> metadata) {
+            delegate.reconciliationExecutionFinished(resource, metadata);
+        }
+
+        @Override
+        public void cleanupDoneFor(ResourceID resourceID, Map<String, Object> metadata) {
+            delegate.cleanupDoneFor(resourceID, metadata);
+        }
+
+        @Override
+        public void finishedReconciliation(HasMetadata resource, Map<String, Object> metadata) {
+            delegate.finishedReconciliation(resource, metadata);
+        }
+
+        @Override
+        public <T> T timeControllerExecution(ControllerExecution<T> execution) throws Exception {
+            return delegate.timeControllerExecution(execution);
+        }
+
+        @Override
+        public <T extends Map<?, ?>> T monitorSizeOf(T map, String name) {
+            return delegate.monitorSizeOf(map, name);
+        }
+    }
+}
@@ -5,42 +5,203 @@ package ch.usp.oss.corazawafoperator.v1;
 
 import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafDeploymentResource;
 import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafEnvoyConfigMapResource;
+import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafHorizontalPodAutoscalerResource;
+import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafMetricsServiceResource;
+import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafPodDisruptionBudgetResource;
 import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafServiceResource;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.quarkiverse.operatorsdk.annotations.RBACRule;
 import io.javaoperatorsdk.operator.api.reconciler.*;
 import io.javaoperatorsdk.operator.api.reconciler.dependent.Dependent;
+import io.javaoperatorsdk.operator.api.reconciler.dependent.DependentResource;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import io.javaoperatorsdk.operator.processing.event.source.EventSource;
+import jakarta.inject.Inject;
 import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @JBossLog
 @Workflow(
+        explicitInvocation = true,
         dependents = {
-                @Dependent( type = CorazaWafEnvoyConfigMapResource.class),
-                @Dependent( type = CorazaWafDeploymentResource.class),
-                @Dependent( type = CorazaWafServiceResource.class)
+                @Dependent( type = CorazaWafEnvoyConfigMapResource.class,
+                        reconcilePrecondition = CorazaWafSharedGateway.NotMemberCondition.class),
+                @Dependent( type = CorazaWafDeploymentResource.class,
+                        reconcilePrecondition = CorazaWafSharedGateway.NotMemberCondition.class),
+                @Dependent( type = CorazaWafServiceResource.class,
+                        reconcilePrecondition = CorazaWafSharedGateway.NotMemberCondition.class),
+                @Dependent( type = CorazaWafHorizontalPodAutoscalerResource.class,
+                        reconcilePrecondition = CorazaWafHorizontalPodAutoscalerResource.AutoscalingEnabledCondition.class),
+                @Dependent( type = CorazaWafPodDisruptionBudgetResource.class,
+                        reconcilePrecondition = CorazaWafPodDisruptionBudgetResource.PodDisruptionBudgetEnabledCondition.class),
+                @Dependent( type = CorazaWafMetricsServiceResource.class,
+                        reconcilePrecondition = CorazaWafMetricsServiceResource.MetricsServiceEnabledCondition.class)
         }
 )
+@RBACRule(apiGroups = "", resources = "pods", verbs = {"get", "list"})
+@RBACRule(apiGroups = "discovery.k8s.io", resources = "endpointslices", verbs = {"get", "list", "watch"})
+@RBACRule(apiGroups = "monitoring.coreos.com", resources = "servicemonitors", verbs = {"get", "create", "patch", "delete"})
 public class CorazaWafReconciler implements Reconciler<CorazaWaf> {
 
     public static final String SELECTOR_KEY = "app.kubernetes.io/managed-by";
     public static final String SELECTOR_VALUE = CorazaWaf.OPERATOR_NAME;
     public static final String SELECTOR = SELECTOR_KEY + "=" + SELECTOR_VALUE;
 
+    private static final String SERVICE_EVENT_SOURCE = DependentResource.defaultNameFor(CorazaWafServiceResource.class);
+
+    @ConfigProperty(name = "corazawaf.envoyimage.name")
+    String envoyImageName;
+    @ConfigProperty(name = "corazawaf.envoyimage.version")
+    String envoyImageVersion;
+    @ConfigProperty(name = "corazawaf.gofilter.path")
+    String goFilterPath;
+
+    @Inject
+    CorazaWafMetrics metrics;
+
+    @Inject
+    CorazaWafServiceMonitor serviceMonitor;
+
+    @Inject
+    CorazaWafDataPlaneStats dataPlaneStats;
+
+    @Inject
+    CorazaWafXdsServer xdsServer;
+
+    @Inject
+    CorazaWafEnvoyConfigTemplate templates;
+
+    @Override
+    public List<EventSource<?, CorazaWaf>> prepareEventSources(EventSourceContext<CorazaWaf> context) {
+        // the EndpointSlice event source is registered lazily, see CorazaWafBackendEndpoints.resolve
+        CorazaWafBackendEndpoints.addIndexer(context);
+        CorazaWafSharedGateway.addIndexer(context);
+        return List.of(CorazaWafSharedGateway.eventSource(context));
+    }
+
     @Override
     public UpdateControl<CorazaWaf> reconcile(CorazaWaf corazaWaf, Context<CorazaWaf> context) throws Exception {
-        log.info("CorazaWafReconciler: Starting reconcile");
+        return metrics.timeReconcile(corazaWaf, () -> reconcileWaf(corazaWaf, context));
+    }
+
+    private UpdateControl<CorazaWaf> reconcileWaf(CorazaWaf corazaWaf, Context<CorazaWaf> context) throws Exception {
         CorazaWafStatus status = corazaWaf.getStatusOrInit();
+        Long generation = corazaWaf.getMetadata().getGeneration();
+        Optional<String> gatewayName = CorazaWafSharedGateway.gatewayName(corazaWaf);
+        // backend endpoints and gateway members are no spec changes, but need to be applied as well
+        List<CorazaWafBackendEndpoints.BackendEndpoint> endpoints = CorazaWafBackendEndpoints.resolve(corazaWaf, context);
+        List<CorazaWaf> members = CorazaWafSharedGateway.members(corazaWaf, context);
+        List<CorazaWafSharedGateway.Tenant> tenants = CorazaWafSharedGateway.tenants(corazaWaf, members);
+        Map<String, String> skippedMembers = CorazaWafSharedGateway.skippedMembers(corazaWaf, members);
+        String specDigest = Utils.digest(corazaWaf.getSpec(), envoyImageName, envoyImageVersion, goFilterPath,
+                endpoints, gatewayName.orElse(""), tenants, skippedMembers);
 
-        String cmName = context.getSecondaryResource(ConfigMap.class).orElseThrow().getMetadata().getName();
-        String svcName = context.getSecondaryResource(Service.class).orElseThrow().getMetadata().getName();
-        String deployName = context.getSecondaryResource(Deployment.class).orElseThrow().getMetadata().getName();
-        status.setConfigMapName(cmName);
-        status.setServiceName(svcName);
-        status.setDeploymentName(deployName);
+        boolean upToDate = isUpToDate(status, generation, specDigest);
+        if (!upToDate) {
+            log.info("CorazaWafReconciler: Starting reconcile");
+            corazaWaf.getSpec().validate();
+        }
+        if (gatewayName.isPresent()) {
+            // checked on every reconcile, the gateway and the other members can change without a change of this CR
+            CorazaWafSharedGateway.validateServed(corazaWaf, context);
+        }
+        // always reconciled, so manual changes of the dependents are reverted and deleted ones recreated; unchanged
+        // dependents are matched against the informer caches (and the rendered configs are cached) without API calls
+        context.managedWorkflowAndDependentResourceContext().put(CorazaWafBackendEndpoints.CONTEXT_KEY, endpoints);
+        context.managedWorkflowAndDependentResourceContext().put(CorazaWafSharedGateway.CONTEXT_KEY, members);
+        context.managedWorkflowAndDependentResourceContext().reconcileManagedWorkflow();
+        if (!upToDate) {
+            // not watched (the CRD is optional), so it is only applied on spec changes
+            serviceMonitor.reconcile(context.getClient(), corazaWaf);
+        }
+        if (xdsServer.isEnabled() && gatewayName.isEmpty()) {
+            // rendered configs are cached, only a changed version is pushed to the pods
+            xdsServer.publish(corazaWaf, templates.getLDsYaml(corazaWaf, tenants), templates.getCdsYaml(corazaWaf, tenants),
+                    CorazaWafBackendEndpoints.isEnabled(corazaWaf) ? templates.getEdsYaml(endpoints) : null);
+            xdsServer.retain(context.getPrimaryCache().list().map(CorazaWafXdsServer::nodeCluster).collect(Collectors.toSet()));
+        }
+
+        if (upToDate) {
+            log.debugf("CorazaWafReconciler: Generation %d already applied, skipping status update", generation);
+            return withDataPlaneStatus(corazaWaf, context, UpdateControl.noUpdate());
+        }
+
+        if (gatewayName.isPresent()) {
+            // served by the Envoy resources of the gateway
+            status.setConfigMapName(CorazaWafEnvoyConfigMapResource.CM_NAME_PREFIX + gatewayName.get());
+            status.setServiceName(CorazaWafServiceResource.SVC_NAME_PREFIX + "-" + gatewayName.get());
+            status.setDeploymentName(CorazaWafDeploymentResource.DEPLOY_NAME_PREFIX + "-" + gatewayName.get());
+        } else {
+            String cmName = context.getSecondaryResource(ConfigMap.class).orElseThrow().getMetadata().getName();
+            String svcName = context.getSecondaryResource(Service.class, SERVICE_EVENT_SOURCE).orElseThrow()
+                    .getMetadata().getName();
+            String deployName = context.getSecondaryResource(Deployment.class).orElseThrow().getMetadata().getName();
+            status.setConfigMapName(cmName);
+            status.setServiceName(svcName);
+            status.setDeploymentName(deployName);
+        }
+        status.setGatewayName(gatewayName.orElse(null));
+        status.setMembers(tenants.size() > 1
+                ? tenants.stream().skip(1).map(CorazaWafSharedGateway.Tenant::name).toList()
+                : null);
+        List<String> warnings = new ArrayList<>(corazaWaf.getSpec().warnings());
+        if (gatewayName.isPresent()) {
+            warnings.addAll(CorazaWafSharedGateway.ignoredMemberSettings(corazaWaf.getSpec()));
+        }
+        skippedMembers.forEach((member, reason) -> warnings.add("Member " + member + " is not served: " + reason));
+        warnings.forEach(warning -> log.warnf("CorazaWafReconciler: %s", warning));
+        status.setWarnings(warnings.isEmpty() ? null : warnings);
         status.setErrorMessage(null);
+        status.setObservedGeneration(generation);
+        status.setSpecDigest(specDigest);
+
+        return withDataPlaneStatus(corazaWaf, context, UpdateControl.patchStatus(corazaWaf));
+    }
+
+    /**
+     * Adds the scraped data plane stats to the status and schedules the next scrape, if enabled
+     * (members of a shared gateway are reported by the gateway).
+     */
+    private UpdateControl<CorazaWaf> withDataPlaneStatus(CorazaWaf corazaWaf, Context<CorazaWaf> context,
+                                                         UpdateControl<CorazaWaf> control) {
+        CorazaWafStatus status = corazaWaf.getStatusOrInit();
+        var telemetry = corazaWaf.getSpec().getTelemetry();
+        if (!telemetry.isStatusEnabled() || CorazaWafSharedGateway.isMember(corazaWaf)) {
+            if (status.getDataPlane() == null) {
+                return control;
+            }
+            dataPlaneStats.forget(ResourceID.fromResource(corazaWaf));
+            status.setDataPlane(null);
+            return UpdateControl.patchStatus(corazaWaf);
+        }
+        Duration scrapeInterval = Duration.ofSeconds(telemetry.getScrapeIntervalSeconds());
+        CorazaWafDataPlaneStatus dataPlane = dataPlaneStats.scrape(context.getClient(), corazaWaf);
+        if (CorazaWafDataPlaneStats.isUnchanged(status.getDataPlane(), dataPlane)) {
+            // an idle WAF would otherwise write its status (and trigger a watch event) on every scrape
+            return control.rescheduleAfter(scrapeInterval);
+        }
+        status.setDataPlane(dataPlane);
+        return UpdateControl.patchStatus(corazaWaf).rescheduleAfter(scrapeInterval);
+    }
 
-        return UpdateControl.patchStatus(corazaWaf);
+    /**
+     * The status only needs to be updated if the spec (or the operator config)
+     * changed since the last successful reconcile or the last reconcile failed.
+     */
+    private static boolean isUpToDate(CorazaWafStatus status, Long generation, String specDigest) {
+        return status.getErrorMessage() == null
+                && Objects.equals(status.getObservedGeneration(), generation)
+                && Objects.equals(status.getSpecDigest(), specDigest);
     }
 
     @Override
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafMetricsServiceResource;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResourceBuilder;
+import io.fabric8.kubernetes.api.model.OwnerReferenceBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.base.PatchContext;
+import io.fabric8.kubernetes.client.dsl.base.PatchType;
+import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prometheus Operator ServiceMonitor for the metrics Service of a CorazaWaf.
+ * <p>
+ * The monitoring.coreos.com CRDs are optional in a cluster, so the ServiceMonitor is no workflow dependent
+ * (its informer would fail without the CRD) but applied server side on each spec change. A missing CRD only
+ * results in a warning.
+ */
+@JBossLog
+@ApplicationScoped
+public class CorazaWafServiceMonitor {
+
+    public static final ResourceDefinitionContext SERVICE_MONITOR = new ResourceDefinitionContext.Builder()
+            .withGroup("monitoring.coreos.com")
+            .withVersion("v1")
+            .withKind("ServiceMonitor")
+            .withPlural("servicemonitors")
+            .withNamespaced(true)
+            .build();
+
+    /**
+     * Creates or updates the ServiceMonitor if enabled in the spec, deletes a previously created one otherwise.
+     */
+    public void reconcile(KubernetesClient client, CorazaWaf corazaWaf) {
+        String namespace = corazaWaf.getMetadata().getNamespace();
+        String name = CorazaWafMetricsServiceResource.SVC_NAME_PREFIX + "-" + corazaWaf.getMetadata().getName();
+        boolean enabled = corazaWaf.getSpec().getTelemetry().isServiceMonitor()
+                && !CorazaWafSharedGateway.isMember(corazaWaf);
+        try {
+            var resource = client.genericKubernetesResources(SERVICE_MONITOR).inNamespace(namespace).withName(name);
+            if (enabled) {
+                resource.patch(PatchContext.of(PatchType.SERVER_SIDE_APPLY), desired(corazaWaf, name));
+                log.debugf("Applied ServiceMonitor %s/%s", namespace, name);
+            } else if (resource.get() != null) {
+                resource.delete();
+                log.infof("Deleted ServiceMonitor %s/%s", namespace, name);
+            }
+        } catch (KubernetesClientException e) {
+            if (enabled) {
+                log.warnf("Unable to apply ServiceMonitor %s/%s (are the monitoring.coreos.com CRDs installed?): %s",
+                        namespace, name, e.getMessage());
+            } else {
+                log.debugf("Unable to check ServiceMonitor %s/%s: %s", namespace, name, e.getMessage());
+            }
+        }
+    }
+
+    private static GenericKubernetesResource desired(CorazaWaf corazaWaf, String name) {
+        return new GenericKubernetesResourceBuilder()
+                .withApiVersion(SERVICE_MONITOR.getGroup() + "/" + SERVICE_MONITOR.getVersion())
+                .withKind(SERVICE_MONITOR.getKind())
+                .withNewMetadata()
+                .withName(name)
+                .withNamespace(corazaWaf.getMetadata().getNamespace())
+                .addToLabels("app.kubernetes.io/name", CorazaWafMetricsServiceResource.SVC_NAME_PREFIX)
+                .addToLabels("app.kubernetes.io/instance", corazaWaf.getMetadata().getName())
+                .addToLabels("app.kubernetes.io/part-of", CorazaWaf.NAME_PREFIX + corazaWaf.getMetadata().getName())
+                .addToLabels(CorazaWafReconciler.SELECTOR_KEY, CorazaWafReconciler.SELECTOR_VALUE)
+                .withOwnerReferences(new OwnerReferenceBuilder()
+                        .withApiVersion(corazaWaf.getApiVersion())
+                        .withKind(corazaWaf.getKind())
+                        .withName(corazaWaf.getMetadata().getName())
+                        .withUid(corazaWaf.getMetadata().getUid())
+                        .withController(true)
+                        .withBlockOwnerDeletion(false)
+                        .build())
+                .endMetadata()
+                .addToAdditionalProperties("spec", Map.of(
+                        "selector", Map.of("matchLabels", Map.of(
+                                "app.kubernetes.io/name", CorazaWafMetricsServiceResource.SVC_NAME_PREFIX,
+                                "app.kubernetes.io/instance", corazaWaf.getMetadata().getName(),
+                                CorazaWafMetricsServiceResource.COMPONENT_KEY,
+                                CorazaWafMetricsServiceResource.COMPONENT_VALUE)),
+                        "endpoints", List.of(Map.of(
+                                "port", CorazaWafMetricsServiceResource.PORT_NAME,
+                                "path", CorazaWafMetricsServiceResource.METRICS_PATH,
+                                "interval", corazaWaf.getSpec().getTelemetry().getScrapeIntervalSeconds() + "s"))))
+                .build();
+    }
+}
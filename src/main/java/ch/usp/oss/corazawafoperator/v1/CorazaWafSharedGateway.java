@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import ch.usp.oss.corazawafoperator.v1.spec.*;
+import io.javaoperatorsdk.operator.api.config.informer.InformerEventSourceConfiguration;
+import io.javaoperatorsdk.operator.api.reconciler.Context;
+import io.javaoperatorsdk.operator.api.reconciler.EventSourceContext;
+import io.javaoperatorsdk.operator.api.reconciler.dependent.DependentResource;
+import io.javaoperatorsdk.operator.processing.dependent.workflow.Condition;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import io.javaoperatorsdk.operator.processing.event.source.informer.InformerEventSource;
+import io.quarkus.qute.TemplateData;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Shared WAF fleet: CRs labeled with {@value #GATEWAY_LABEL} = &lt;name&gt; do not get their own Envoy pods,
+ * but are served by the pods of the CorazaWaf &lt;name&gt; in the same namespace (the gateway).
+ * <p>
+ * Each CR becomes a tenant of the gateway listener with its own virtual host (spec.hosts), backend cluster
+ * and named Coraza directive set, selected by host via host_directive_map. The gateway CR itself is the
+ * default tenant and also defines all listener and deployment wide settings.
+ */
+@JBossLog
+public class CorazaWafSharedGateway {
+
+    public static final String GATEWAY_LABEL = "oss.u-s-p.ch/gateway";
+    /** Name of the event source watching the gateway members */
+    public static final String MEMBERS_EVENT_SOURCE = "corazawaf-gateway-members";
+    /** Name of the primary cache index of the gateways by the members they serve (status.members) */
+    public static final String SERVED_MEMBERS_INDEX = "corazawaf-gateway-served-members";
+    /** Name of the primary cache index of the members by their gateway ({@value #GATEWAY_LABEL}) */
+    public static final String GATEWAY_MEMBERS_INDEX = "corazawaf-gateway-members";
+    /** Key of the gateway members in the managed workflow context */
+    public static final String CONTEXT_KEY = "corazawaf.gateway.members";
+
+    public static final String DEFAULT_DIRECTIVE = "default";
+    public static final String DEFAULT_CLUSTER = "corazawaf.cluster.backend";
+
+    private CorazaWafSharedGateway() {
+    }
+
+    /**
+     * A virtual host of the listener with its own backend cluster and directive set.
+     */
+    @TemplateData
+    public record Tenant(String name, String directiveName, String clusterName, List<String> domains, CorazaWafSpec spec) {
+    }
+
+    public static Optional<String> gatewayName(CorazaWaf corazaWaf) {
+        Map<String, String> labels = corazaWaf.getMetadata().getLabels();
+        return Optional.ofNullable(labels == null ? null : labels.get(GATEWAY_LABEL)).filter(name -> !name.isBlank());
+    }
+
+    public static boolean isMember(CorazaWaf corazaWaf) {
+        return gatewayName(corazaWaf).isPresent();
+    }
+
+    private static String memberKey(String namespace, String name) {
+        return namespace + "/" + name;
+    }
+
+    /**
+     * Indexes the members by their gateway and the gateways by the members they currently serve. Has to be called
+     * before the primary cache is started (in prepareEventSources).
+     */
+    public static void addIndexer(EventSourceContext<CorazaWaf> context) {
+        context.getPrimaryCache().addIndexer(GATEWAY_MEMBERS_INDEX, member -> gatewayName(member)
+                .map(name -> List.of(memberKey(member.getMetadata().getNamespace(), name)))
+                .orElse(List.of()));
+        context.getPrimaryCache().addIndexer(SERVED_MEMBERS_INDEX, gateway -> {
+            CorazaWafStatus status = gateway.getStatus();
+            if (status == null || status.getMembers() == null) {
+                return List.of();
+            }
+            return status.getMembers().stream()
+                    .map(member -> memberKey(gateway.getMetadata().getNamespace(), member))
+                    .toList();
+        });
+    }
+
+    /**
+     * Event source triggering a reconcile of the gateway whenever one of its members changes. The gateway still
+     * serving a member is reconciled as well, so it drops the member if its label changed to another gateway.
+     * Whenever a gateway changes (including its status.members), its members are reconciled, so they report if the
+     * gateway does not serve them (see {@link #validateServed}).
+     */
+    public static InformerEventSource<CorazaWaf, CorazaWaf> eventSource(EventSourceContext<CorazaWaf> context) {
+        var configuration = InformerEventSourceConfiguration.from(CorazaWaf.class, CorazaWaf.class)
+                .withName(MEMBERS_EVENT_SOURCE)
+                .withSecondaryToPrimaryMapper(corazaWaf -> {
+                    String namespace = corazaWaf.getMetadata().getNamespace();
+                    String key = memberKey(namespace, corazaWaf.getMetadata().getName());
+                    Set<ResourceID> primaries = new HashSet<>();
+                    Optional<String> gatewayName = gatewayName(corazaWaf);
+                    if (gatewayName.isPresent()) {
+                        primaries.add(new ResourceID(gatewayName.get(), namespace));
+                    } else {
+                        context.getPrimaryCache().byIndex(GATEWAY_MEMBERS_INDEX, key)
+                                .forEach(member -> primaries.add(ResourceID.fromResource(member)));
+                    }
+                    context.getPrimaryCache().byIndex(SERVED_MEMBERS_INDEX, key)
+                            .forEach(gateway -> primaries.add(ResourceID.fromResource(gateway)));
+                    return primaries;
+                })
+                .build();
+        return new InformerEventSource<>(configuration, context);
+    }
+
+    /**
+     * Returns the members labeled with the given gateway, sorted by name. Invalid members and members with hosts
+     * already served by another tenant are skipped by {@link #tenants}.
+     */
+    public static List<CorazaWaf> members(CorazaWaf gateway, Context<CorazaWaf> context) {
+        if (isMember(gateway)) {
+            return List.of();
+        }
+        return context.eventSourceRetriever().getEventSourceFor(CorazaWaf.class, MEMBERS_EVENT_SOURCE)
+                .getSecondaryResources(gateway).stream()
+                // also mapped to the gateway which served it before its label changed
+                .filter(member -> gatewayName(member).filter(gateway.getMetadata().getName()::equals).isPresent())
+                .sorted(Comparator.comparing(member -> member.getMetadata().getName()))
+                .toList();
+    }
+
+    /**
+     * Settings a CR must fulfill to be served by a shared gateway.
+     *
+     * @throws IllegalArgumentException if the CR can not be a member
+     */
+    public static void validateMember(CorazaWaf member) {
+        CorazaWafSpec spec = member.getSpec();
+        if (spec.getHosts().isEmpty() || spec.getHosts().stream().anyMatch(host -> host.contains("*"))) {
+            throw new IllegalArgumentException("hosts must list the explicit host names of a shared gateway member");
+        }
+        if (spec.getBackend().getDiscovery() != CorazaWafBackend.Discovery.DNS) {
+            throw new IllegalArgumentException("backend.discovery must be DNS for a shared gateway member");
+        }
+    }
+
+    /**
+     * Checks that the given member is served by its gateway: the gateway exists, the member is valid and its hosts
+     * are not served by the gateway or a member before it (by name) already, see {@link #tenants}.
+     *
+     * @throws IllegalStateException if the gateway does not serve the member
+     */
+    public static void validateServed(CorazaWaf member, Context<CorazaWaf> context) {
+        String namespace = member.getMetadata().getNamespace();
+        String name = member.getMetadata().getName();
+        String gatewayName = gatewayName(member).orElseThrow();
+        ResourceID gatewayId = new ResourceID(gatewayName, namespace);
+        CorazaWaf gateway = context.getPrimaryCache().get(gatewayId)
+                .filter(gw -> !isMember(gw))
+                .orElseThrow(() -> new IllegalStateException("Shared gateway " + gatewayId + " not found"));
+        List<CorazaWaf> members = new ArrayList<>(context.getPrimaryCache()
+                .byIndex(GATEWAY_MEMBERS_INDEX, memberKey(namespace, gatewayName)).stream()
+                .filter(other -> !other.getMetadata().getName().equals(name))
+                .toList());
+        members.add(member);
+        members.sort(Comparator.comparing(other -> other.getMetadata().getName()));
+        String reason = skippedMembers(gateway, members).get(name);
+        if (reason != null) {
+            throw new IllegalStateException("Not served by shared gateway " + gatewayName + ": " + reason);
+        }
+    }
+
+    /**
+     * Warnings about the settings of a member which only apply to the Envoy pods or the whole listener, the ones of
+     * the gateway are used instead.
+     */
+    public static List<String> ignoredMemberSettings(CorazaWafSpec spec) {
+        Map<String, Boolean> ignored = new LinkedHashMap<>();
+        ignored.put("replicas", spec.getReplicas() != 1);
+        ignored.put("rollout", !spec.getRollout().equals(new CorazaWafRollout()));
+        ignored.put("autoscaling", !spec.getAutoscaling().equals(new CorazaWafAutoscaling()));
+        ignored.put("resources", !spec.getResources().equals(new CorazaWafResources()));
+        ignored.put("accessLog", !spec.getAccessLog().equals(new CorazaWafAccessLog()));
+        ignored.put("telemetry", !spec.getTelemetry().equals(new CorazaWafTelemetry()));
+        ignored.put("protocolLimits", !spec.getProtocolLimits().equals(new CorazaWafProtocolLimits()));
+        return ignored.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(entry -> entry.getKey() + " is ignored for a shared gateway member, the one of the gateway applies")
+                .toList();
+    }
+
+    /**
+     * The gateway itself as default tenant, followed by its members. Invalid members and members with hosts already
+     * served by a tenant before them are skipped, see {@link #skippedMembers}.
+     */
+    public static List<Tenant> tenants(CorazaWaf gateway, List<CorazaWaf> members) {
+        return tenants(gateway, members, new LinkedHashMap<>());
+    }
+
+    /**
+     * The members skipped by {@link #tenants}, by name with the reason.
+     */
+    public static Map<String, String> skippedMembers(CorazaWaf gateway, List<CorazaWaf> members) {
+        Map<String, String> skipped = new LinkedHashMap<>();
+        tenants(gateway, members, skipped);
+        return skipped;
+    }
+
+    private static List<Tenant> tenants(CorazaWaf gateway, List<CorazaWaf> members, Map<String, String> skipped) {
+        List<Tenant> tenants = new ArrayList<>(members.size() + 1);
+        List<String> gatewayDomains = gateway.getSpec().getHosts().isEmpty() ? List.of("*") : gateway.getSpec().getHosts();
+        tenants.add(new Tenant(gateway.getMetadata().getName(), DEFAULT_DIRECTIVE, DEFAULT_CLUSTER, gatewayDomains, gateway.getSpec()));
+        // Envoy rejects the whole listener if a domain is used by more than one virtual host
+        Map<String, String> domains = new HashMap<>();
+        gatewayDomains.forEach(domain -> domains.put(domain, gateway.getMetadata().getName()));
+        for (CorazaWaf member : members) {
+            String name = member.getMetadata().getName();
+            List<String> memberDomains = member.getSpec().getHosts();
+            String reason;
+            try {
+                validateMember(member);
+                reason = memberDomains.stream()
+                        .filter(domains::containsKey)
+                        .findFirst()
+                        .map(domain -> "host " + domain + " is already served by " + domains.get(domain))
+                        .orElse(null);
+            } catch (IllegalArgumentException e) {
+                reason = e.getMessage();
+            }
+            if (reason != null) {
+                log.debugf("Skipping member %s of gateway %s: %s", name, gateway.getMetadata().getName(), reason);
+                skipped.put(name, reason);
+                continue;
+            }
+            memberDomains.forEach(domain -> domains.put(domain, name));
+            tenants.add(new Tenant(name, name, DEFAULT_CLUSTER + "." + name, memberDomains, member.getSpec()));
+        }
+        return tenants;
+    }
+
+    /**
+     * JSON map of host name to directive set of all members, the gateway uses the default directive set.
+     */
+    public static String hostDirectiveMap(List<Tenant> tenants) {
+        return tenants.stream()
+                .filter(tenant -> !DEFAULT_DIRECTIVE.equals(tenant.directiveName()))
+                .flatMap(tenant -> tenant.domains().stream()
+                        .map(host -> "\"" + host + "\":\"" + tenant.directiveName() + "\""))
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    /**
+     * Only CRs which are not served by a shared gateway get their own Envoy resources,
+     * existing ones get deleted when a CR joins a gateway.
+     */
+    public static class NotMemberCondition<R> implements Condition<R, CorazaWaf> {
+        @Override
+        public boolean isMet(DependentResource<R, CorazaWaf> dependentResource, CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+            return !isMember(corazaWaf);
+        }
+    }
+}
@@ -6,6 +6,8 @@ package ch.usp.oss.corazawafoperator.v1;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
 
+import java.util.List;
+
 @Data
 @EqualsAndHashCode(callSuper = false)
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -14,4 +16,16 @@ public class CorazaWafStatus  {
     private String serviceName;
     private String deploymentName;
     private String errorMessage;
+    /** Problems of the spec which do not prevent it from being applied, e.g. exceptions for unknown rule IDs */
+    private List<String> warnings;
+    /** Generation of the CR which was last applied successfully */
+    private Long observedGeneration;
+    /** Digest of the spec, operator config and backend endpoints which were last applied successfully */
+    private String specDigest;
+    /** Name of the shared gateway serving this CR, if it is a member of one */
+    private String gatewayName;
+    /** Names of the CRs served by this CR as shared gateway */
+    private List<String> members;
+    /** Data plane latency and throughput, if spec.telemetry.statusEnabled */
+    private CorazaWafDataPlaneStatus dataPlane;
 }
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.quarkus.qute.TemplateData;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.BodyHandler;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional xDS server of the operator: the WAF pods fetch their listener, clusters and endpoints from the operator
+ * instead of the mounted ConfigMap, so a change reaches Envoy as soon as it is reconciled rather than after the
+ * kubelet ConfigMap sync.
+ * <p>
+ * Envoy uses the REST-JSON transport of the xDS protocol (ADS and delta xDS require gRPC). Each fetch carries the
+ * version Envoy has applied: an outdated version is answered right away, a current one is held open until the next
+ * version is published (long polling) or answered with 304 Not Modified after {@code corazawaf.xds.server.hold}.
+ * So a new version is pushed to all waiting pods immediately, per resource type and only if it changed.
+ * <p>
+ * Envoy identifies itself with node.cluster = &lt;namespace&gt;/&lt;name&gt; of its CR and the CR uid as
+ * node.metadata.token, which can only be read by those allowed to read the CR (and its config) anyway.
+ */
+@JBossLog
+@ApplicationScoped
+public class CorazaWafXdsServer {
+
+    public static final String PATH_PREFIX = "/v3/discovery:";
+    public static final String CLUSTER_NAME = "corazawaf.cluster.xds";
+    public static final String TOKEN_METADATA = "token";
+    /** Max. size of a discovery request, it only contains the node and the versions */
+    private static final int MAX_REQUEST_BYTES = 64 * 1024;
+
+    public enum ResourceType {
+        LISTENERS("type.googleapis.com/envoy.config.listener.v3.Listener"),
+        CLUSTERS("type.googleapis.com/envoy.config.cluster.v3.Cluster"),
+        ENDPOINTS("type.googleapis.com/envoy.config.endpoint.v3.ClusterLoadAssignment");
+
+        private final String typeUrl;
+
+        ResourceType(String typeUrl) {
+            this.typeUrl = typeUrl;
+        }
+
+        public String getTypeUrl() {
+            return typeUrl;
+        }
+
+        public String getPath() {
+            return PATH_PREFIX + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Answer to a discovery request, status 200 with a DiscoveryResponse, 304 Not Modified or an error.
+     */
+    public record XdsResponse(int status, String body) {
+    }
+
+    /**
+     * Bootstrap settings of a WAF pod fetching its config from this server.
+     */
+    @TemplateData
+    public record XdsBootstrap(String nodeCluster, String token, String address, int port, long requestTimeoutSeconds) {
+    }
+
+    private record Snapshot(String version, String token, JsonNode resources) {
+    }
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+
+    @ConfigProperty(name = "corazawaf.xds.server.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "corazawaf.xds.server.address")
+    Optional<String> address;
+
+    @ConfigProperty(name = "corazawaf.xds.server.port", defaultValue = "80")
+    int port;
+
+    @ConfigProperty(name = "corazawaf.xds.server.hold", defaultValue = "20s")
+    Duration hold;
+
+    private final Map<String, Watched> watched = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static String nodeCluster(CorazaWaf corazaWaf) {
+        return corazaWaf.getMetadata().getNamespace() + "/" + corazaWaf.getMetadata().getName();
+    }
+
+    /**
+     * Bootstrap settings for the pods of the given CR, or null if the xDS server is disabled.
+     */
+    public XdsBootstrap bootstrap(CorazaWaf corazaWaf) {
+        if (!enabled) {
+            return null;
+        }
+        String host = address.orElseThrow(() -> new IllegalStateException(
+                "corazawaf.xds.server.address must be set if the xDS server is enabled"));
+        // Envoy must not time out a held fetch itself, that would count as a failed update
+        return new XdsBootstrap(nodeCluster(corazaWaf), corazaWaf.getMetadata().getUid(), host, port,
+                hold.toSeconds() + 10);
+    }
+
+    void routes(@Observes Router router) {
+        if (!enabled) {
+            return;
+        }
+        for (ResourceType type : ResourceType.values()) {
+            // Vert.x would take ':listeners' for a path parameter, so the paths are matched literally by regex
+            router.postWithRegex(type.getPath().replace(":", "\\:"))
+                    .handler(BodyHandler.create().setBodyLimit(MAX_REQUEST_BYTES))
+                    .handler(rc -> discover(type, rc.body().asString()).whenComplete((response, e) -> {
+                        if (e != null) {
+                            log.warnf(e, "xDS %s request failed", type);
+                            response = new XdsResponse(500, "");
+                        }
+                        rc.response().setStatusCode(response.status())
+                                .putHeader("Content-Type", "application/json")
+                                .end(response.body());
+                    }));
+        }
+        log.infof("xDS server enabled, serving %s", Arrays.toString(ResourceType.values()));
+    }
+
+    /**
+     * Publishes the rendered lds/cds (and eds if the backend uses discovery ENDPOINTS) of a CR. Pods waiting for a
+     * changed version get it right away, republishing an unchanged version has no effect.
+     */
+    public void publish(CorazaWaf corazaWaf, String lds, String cds, String eds) {
+        String nodeCluster = nodeCluster(corazaWaf);
+        String token = corazaWaf.getMetadata().getUid();
+        publish(nodeCluster, ResourceType.LISTENERS, token, lds);
+        publish(nodeCluster, ResourceType.CLUSTERS, token, cds);
+        if (eds != null) {
+            publish(nodeCluster, ResourceType.ENDPOINTS, token, eds);
+        }
+    }
+
+    private void publish(String nodeCluster, ResourceType type, String token, String yaml) {
+        Watched resource = watched(nodeCluster, type);
+        Snapshot current = resource.snapshot();
+        // the rendered configs start with their version, an unchanged one does not have to be parsed again
+        if (current != null && current.token().equals(token)
+                && yaml.startsWith("versionInfo: \"" + current.version() + "\"")) {
+            return;
+        }
+        JsonNode discoveryResponse;
+        try {
+            discoveryResponse = YAML_MAPPER.readTree(yaml);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Rendered " + type + " of " + nodeCluster + " is no valid YAML", e);
+        }
+        Snapshot snapshot = new Snapshot(discoveryResponse.path("versionInfo").asText(), token,
+                discoveryResponse.path("resources"));
+        if (resource.set(snapshot)) {
+            log.debugf("Published xDS %s version %s of %s", type, snapshot.version(), nodeCluster);
+        }
+    }
+
+    /**
+     * Drops the configs of all CRs not in the given set (deleted CRs).
+     */
+    public void retain(Set<String> nodeClusters) {
+        watched.keySet().removeIf(key -> !nodeClusters.contains(key.substring(0, key.lastIndexOf('|'))));
+    }
+
+    /**
+     * Answers a JSON DiscoveryRequest of Envoy, see the class comment.
+     */
+    public CompletableFuture<XdsResponse> discover(ResourceType type, String body) {
+        JsonNode request;
+        try {
+            request = JSON_MAPPER.readTree(body);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.completedFuture(new XdsResponse(400, ""));
+        }
+        JsonNode node = request.path("node");
+        String nodeCluster = node.path("cluster").asText();
+        String token = node.path("metadata").path(TOKEN_METADATA).asText();
+        String version = field(request, "version_info", "versionInfo");
+        CompletableFuture<Snapshot> next = watched(nodeCluster, type).next(version);
+        // nothing new (or not yet published after an operator restart), wait for the next version
+        next.completeOnTimeout(null, hold.toMillis(), TimeUnit.MILLISECONDS);
+        return next.thenApply(snapshot -> snapshot == null
+                ? new XdsResponse(304, "")
+                : response(type, snapshot, token));
+    }
+
+    private static XdsResponse response(ResourceType type, Snapshot snapshot, String token) {
+        if (!snapshot.token().equals(token)) {
+            return new XdsResponse(403, "");
+        }
+        ObjectNode response = JSON_MAPPER.createObjectNode();
+        response.put("version_info", snapshot.version());
+        response.set("resources", snapshot.resources());
+        response.put("type_url", type.getTypeUrl());
+        response.put("nonce", snapshot.version());
+        return new XdsResponse(200, response.toString());
+    }
+
+    private static String field(JsonNode node, String name, String jsonName) {
+        JsonNode value = node.has(name) ? node.get(name) : node.path(jsonName);
+        return value.asText();
+    }
+
+    private Watched watched(String nodeCluster, ResourceType type) {
+        return watched.computeIfAbsent(nodeCluster + "|" + type, key -> new Watched());
+    }
+
+    /**
+     * Current version of a resource type of a CR and the fetches waiting for the next one.
+     */
+    private static final class Watched {
+        private Snapshot snapshot;
+        private final Set<CompletableFuture<Snapshot>> waiting = new HashSet<>();
+
+        synchronized Snapshot snapshot() {
+            return snapshot;
+        }
+
+        /**
+         * The current snapshot if its version differs from the given one, otherwise the next one.
+         */
+        CompletableFuture<Snapshot> next(String version) {
+            CompletableFuture<Snapshot> next = new CompletableFuture<>();
+            synchronized (this) {
+                if (snapshot != null && !snapshot.version().equals(version)) {
+                    return CompletableFuture.completedFuture(snapshot);
+                }
+                waiting.add(next);
+            }
+            // answered or timed out, either way it no longer waits
+            next.whenComplete((snapshot, e) -> {
+                synchronized (this) {
+                    waiting.remove(next);
+                }
+            });
+            return next;
+        }
+
+        boolean set(Snapshot next) {
+            List<CompletableFuture<Snapshot>> notify;
+            synchronized (this) {
+                if (snapshot != null && snapshot.version().equals(next.version())
+                        && snapshot.token().equals(next.token())) {
+                    return false;
+                }
+                snapshot = next;
+                notify = List.copyOf(waiting);
+                waiting.clear();
+            }
+            notify.forEach(waiter -> waiter.complete(next));
+            return true;
+        }
+    }
+}
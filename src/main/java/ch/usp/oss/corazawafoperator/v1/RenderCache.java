@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import lombok.extern.jbosslog.JBossLog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache for rendered Envoy configuration, keyed by a digest of the render input.
+ * Hits, misses and evictions are counted so the cache efficiency can be observed.
+ */
+@JBossLog
+public class RenderCache {
+
+    private final String name;
+    private final int maxEntries;
+    private final Map<String, String> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RenderCache(String name, int maxEntries) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                boolean evict = size() > RenderCache.this.maxEntries;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the given key or renders and caches it.
+     * Rendering happens outside the lock, concurrent misses on the same key may both render.
+     */
+    public String get(String key, Supplier<String> renderer) {
+        if (maxEntries <= 0) {
+            misses.incrementAndGet();
+            return renderer.get();
+        }
+        synchronized (entries) {
+            String cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        String rendered = renderer.get();
+        synchronized (entries) {
+            entries.put(key, rendered);
+        }
+        log.debugf("Render cache '%s': hits=%d, misses=%d, evictions=%d, size=%d",
+                name, hits.get(), misses.get(), evictions.get(), size());
+        return rendered;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -3,8 +3,18 @@
  */
 package ch.usp.oss.corazawafoperator.v1;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.fabric8.kubernetes.api.model.Quantity;
+
 import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -55,4 +65,43 @@ public class Utils {
         }
         throw new NumberFormatException("Wrong format: " + sizeString);
     }
+
+    /**
+     * Numerical amount of a Kubernetes quantity (e.g. '512Mi' = 536870912 bytes, '500m' = 0.5 cores).
+     * @throws IllegalArgumentException naming the field if the value is no positive quantity
+     */
+    public static BigDecimal quantityAmount(String field, String value) {
+        BigDecimal amount;
+        try {
+            amount = Quantity.parse(value).getNumericalAmount();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(field + ": invalid quantity '" + value + "'");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException(field + ": quantity '" + value + "' must be positive");
+        }
+        return amount;
+    }
+
+    /** Mapper with a deterministic property order, so equal objects always produce the same JSON. */
+    private static final ObjectMapper DIGEST_MAPPER = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    /**
+     * Stable SHA-256 digest (hex) of the JSON representation of the given objects.
+     */
+    public static String digest(Object... objects) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (Object object : objects) {
+                md.update(DIGEST_MAPPER.writeValueAsBytes(object));
+                md.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Unable to compute digest", e);
+        }
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafMetrics;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.javaoperatorsdk.operator.api.reconciler.Context;
+import io.javaoperatorsdk.operator.processing.dependent.kubernetes.CRUDKubernetesDependentResource;
+import jakarta.inject.Inject;
+
+/**
+ * Base of the CorazaWaf dependents, records the time to build the desired resource and to apply it.
+ */
+public abstract class CorazaWafDependentResource<R extends HasMetadata> extends CRUDKubernetesDependentResource<R, CorazaWaf> {
+
+    @Inject
+    CorazaWafMetrics metrics;
+
+    protected CorazaWafDependentResource(Class<R> resourceType) {
+        super(resourceType);
+    }
+
+    /**
+     * Builds the desired state of the dependent resource.
+     */
+    protected abstract R desiredResource(CorazaWaf corazaWaf, Context<CorazaWaf> context);
+
+    @Override
+    protected final R desired(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+        return metrics.timeDesired(resourceType(), corazaWaf, () -> desiredResource(corazaWaf, context));
+    }
+
+    @Override
+    protected R handleCreate(R desired, CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+        return metrics.timeApply(resourceType(), "create", corazaWaf,
+                () -> super.handleCreate(desired, corazaWaf, context));
+    }
+
+    @Override
+    protected R handleUpdate(R actual, R desired, CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+        return metrics.timeApply(resourceType(), "update", corazaWaf,
+                () -> super.handleUpdate(actual, desired, corazaWaf, context));
+    }
+}
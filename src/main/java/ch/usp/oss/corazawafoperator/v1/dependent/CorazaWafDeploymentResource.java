@@ -4,44 +4,354 @@
 package ch.usp.oss.corazawafoperator.v1.dependent;
 
 import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafEnvoyConfigTemplate;
 import ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler;
+import ch.usp.oss.corazawafoperator.v1.Utils;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafAccessLog;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafResources;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafRollout;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafSpec;
 import io.fabric8.kubernetes.api.model.*;
 import io.fabric8.kubernetes.api.model.apps.Deployment;
 import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
 import io.javaoperatorsdk.operator.api.config.informer.Informer;
 import io.javaoperatorsdk.operator.api.reconciler.Context;
-import io.javaoperatorsdk.operator.processing.dependent.kubernetes.CRUDKubernetesDependentResource;
 import io.javaoperatorsdk.operator.processing.dependent.kubernetes.KubernetesDependent;
 import io.javaoperatorsdk.operator.processing.event.ResourceID;
-
+import jakarta.inject.Inject;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_KEY;
 import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_VALUE;
+import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafEnvoyConfigMapResource.FILENAME_ENVOY;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 import java.util.*;
 
 @JBossLog
 @KubernetesDependent(informer = @Informer(labelSelector = CorazaWafReconciler.SELECTOR))
-public class CorazaWafDeploymentResource extends CRUDKubernetesDependentResource<Deployment, CorazaWaf> {
+public class CorazaWafDeploymentResource extends CorazaWafDependentResource<Deployment> {
 
     public static final String DEPLOY_NAME_PREFIX = CorazaWaf.NAME_PREFIX + "deployment";
 
     private static final String VOLUME_NAME_CONFIG = "envoy-config-volume";
     private static final String VOLUME_NAME_CORAZA_TMP = "coraza-tmp-volume";
+    private static final String VOLUME_NAME_ACCESS_LOG = "envoy-access-log-volume";
     public static final String ENVOY_CONFIG_PATH = "/etc/envoy/";
+    /** Digest of the bootstrap config, Envoy only reads it at startup, so a change has to roll the pods */
+    public static final String BOOTSTRAP_DIGEST_ANNOTATION = "oss.u-s-p.ch/bootstrap-digest";
+
+    /** Memory of an idle Envoy with the Coraza go filter and the CRS loaded */
+    private static final long ENVOY_BASE_MEMORY_BYTES = Utils.toBytesAsLong("256Mb");
+    /** Minimum derived size of a memory backed scratch volume */
+    private static final long MIN_TMP_VOLUME_BYTES = Utils.toBytesAsLong("64Mb");
+    /** Interval in which the access log rotation sidecar checks the size of the log file */
+    private static final int ACCESS_LOG_ROTATE_CHECK_SECONDS = 5;
 
     @ConfigProperty(name = "corazawaf.envoyimage.name")
     String envoyImageName;
     @ConfigProperty(name = "corazawaf.envoyimage.version")
     String envoyImageVersion;
 
-    @Override
-    protected Deployment desired(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+    @Inject
+    CorazaWafEnvoyConfigTemplate templates;
+
+    private static List<ContainerPort> containerPorts(CorazaWafSpec spec) {
+        List<ContainerPort> ports = new ArrayList<>(3);
+        ports.add(new ContainerPortBuilder()
+                .withName("traffic-port")
+                .withContainerPort(CorazaWaf.TRAFFIC_CONTAINER_PORT.getIntVal())
+                .withProtocol("TCP")
+                .build());
+        ports.add(new ContainerPortBuilder()
+                .withName("admin-port")
+                .withContainerPort(CorazaWaf.ADMIN_CONTAINER_PORT.getIntVal())
+                .withProtocol("TCP")
+                .build());
+        if (spec.getTelemetry().isMetricsServiceEnabled()) {
+            ports.add(new ContainerPortBuilder()
+                    .withName("metrics-port")
+                    .withContainerPort(CorazaWaf.METRICS_CONTAINER_PORT.getIntVal())
+                    .withProtocol("TCP")
+                    .build());
+        }
+        return ports;
+    }
+
+    /**
+     * Labels selecting the WAF pods of the given CR.
+     */
+    public static Map<String, String> selectorLabels(CorazaWaf corazaWaf) {
         Map<String, String> selectorLabels = new HashMap<>(2);
         selectorLabels.put("app.kubernetes.io/name", DEPLOY_NAME_PREFIX);
         selectorLabels.put("app.kubernetes.io/instance", corazaWaf.getMetadata().getName());
+        return selectorLabels;
+    }
+
+    /**
+     * Envoy worker threads, explicitly set or derived from the CPU limit (or request) of the container.
+     * Returns null if neither is set, Envoy then uses the number of hardware threads of the node.
+     */
+    public static Integer envoyConcurrency(CorazaWafSpec spec) {
+        CorazaWafResources resources = spec.getResources();
+        if (resources.getConcurrency() != null) {
+            return resources.getConcurrency();
+        }
+        String cpu = resources.getCpuLimit() != null ? resources.getCpuLimit() : resources.getCpuRequest();
+        if (cpu == null) {
+            return null;
+        }
+        BigDecimal cores = new Quantity(cpu).getNumericalAmount();
+        return Math.max(1, cores.setScale(0, RoundingMode.CEILING).intValue());
+    }
+
+    /**
+     * Memory request, explicitly set or derived from the base memory of Envoy plus the inspected body bytes
+     * times the expected number of concurrent streams (plus the memory backed volumes), capped at the memory limit.
+     * Returns null (no request) if neither the request nor the limit is set.
+     */
+    public static Quantity memoryRequest(CorazaWafSpec spec) {
+        CorazaWafResources resources = spec.getResources();
+        if (resources.getMemoryRequest() != null) {
+            return new Quantity(resources.getMemoryRequest());
+        }
+        if (resources.getMemoryLimit() == null) {
+            // an uncapped derived request could exceed the node memory (e.g. large body limits), never schedule
+            return null;
+        }
+        // spooled bodies and the access log are kept in addition to the bodies buffered by Envoy
+        long bytes = ENVOY_BASE_MEMORY_BYTES + spec.getInspectedBodyBytesPerStream() * resources.getConcurrentStreams()
+                + memoryVolumesBytes(spec);
+        long limit = Quantity.getAmountInBytes(new Quantity(resources.getMemoryLimit())).longValue();
+        if (limit < bytes) {
+            log.warnf("Memory limit %s is below the %d bytes expected for %d concurrent streams",
+                    resources.getMemoryLimit(), bytes, resources.getConcurrentStreams());
+            bytes = limit;
+        }
+        // round up to full MiB
+        long mib = (bytes + (1L << 20) - 1) >> 20;
+        return new Quantity(mib + "Mi");
+    }
+
+    /**
+     * Size limit of the Coraza scratch volume, explicitly set or, if memory backed, derived from the inspected body
+     * bytes times the expected number of concurrent streams (the worst case of all of them being spooled).
+     * Returns null for an unlimited disk backed volume.
+     */
+    public static Quantity tmpVolumeSizeLimit(CorazaWafSpec spec) {
+        CorazaWafResources resources = spec.getResources();
+        if (resources.getTmpVolumeSizeLimit() != null) {
+            return new Quantity(resources.getTmpVolumeSizeLimit());
+        }
+        if (resources.getTmpVolumeMedium() != CorazaWafResources.TmpVolumeMedium.MEMORY) {
+            return null;
+        }
+        long bytes = Math.max(MIN_TMP_VOLUME_BYTES, spec.getInspectedBodyBytesPerStream() * resources.getConcurrentStreams());
+        // round up to full MiB
+        long mib = (bytes + (1L << 20) - 1) >> 20;
+        return new Quantity(mib + "Mi");
+    }
+
+    /**
+     * Estimated Go heap of the Coraza filter, see {@link CorazaWafResources#corazaHeapBytes}.
+     */
+    public static long corazaHeapBytes(CorazaWafSpec spec) {
+        return spec.getResources().corazaHeapBytes(spec.getInspectedBodyBytesPerStream());
+    }
+
+    /**
+     * Size limits of the memory backed (tmpfs) volumes, their content is charged to the memory of the container.
+     */
+    public static long memoryVolumesBytes(CorazaWafSpec spec) {
+        long bytes = 0;
+        if (spec.getResources().getTmpVolumeMedium() == CorazaWafResources.TmpVolumeMedium.MEMORY) {
+            bytes += Quantity.getAmountInBytes(tmpVolumeSizeLimit(spec)).longValue();
+        }
+        if (spec.getAccessLog().isFileSink()) {
+            bytes += spec.getAccessLog().getFileVolumeSizeLimitBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Shell command POSTing to the Envoy admin API, which only accepts POST for mutations: with curl or, if the
+     * image has none, bash's /dev/tcp.
+     */
+    private static String adminPost(String path) {
+        int adminPort = CorazaWaf.ADMIN_CONTAINER_PORT.getIntVal();
+        return "{ curl -s -o /dev/null -X POST 'http://127.0.0.1:" + adminPort + path + "'"
+                + " || bash -c 'printf \"POST " + path + " HTTP/1.0\\r\\n\\r\\n\" > /dev/tcp/127.0.0.1/" + adminPort + "'; }";
+    }
+
+    /**
+     * Drains the listeners (in-flight requests complete, connections are closed after them) and waits for the drain
+     * time, meanwhile the pod is removed from the Service endpoints.
+     */
+    private static Lifecycle lifecycle(CorazaWafSpec spec) {
+        int drainSeconds = spec.getRollout().getDrainSeconds();
+        if (drainSeconds == 0) {
+            return null;
+        }
+        String script = adminPost("/drain_listeners?graceful&inboundonly") + "; sleep " + drainSeconds;
+        return new LifecycleBuilder()
+                .withNewPreStop()
+                    .withNewExec()
+                        .withCommand("/bin/sh", "-c", script)
+                    .endExec()
+                .endPreStop()
+                .build();
+    }
+
+    /**
+     * Sidecar rotating the access log file: Envoy appends to it forever, so once it exceeds the rotation size it is
+     * renamed (replacing the previously rotated file) and Envoy is told to reopen it. Uses the Envoy image, which
+     * has a shell.
+     */
+    private Container accessLogRotateContainer(CorazaWafSpec spec) {
+        String file = CorazaWafAccessLog.FILE_DIR + CorazaWafAccessLog.FILE_NAME;
+        String script = "trap 'exit 0' TERM; while true; do"
+                + " sleep " + ACCESS_LOG_ROTATE_CHECK_SECONDS + " & wait $!;"
+                + " if [ -f " + file + " ] && [ \"$(wc -c < " + file + ")\" -ge " + spec.getAccessLog().getFileRotateBytes() + " ]; then"
+                + " mv -f " + file + " " + CorazaWafAccessLog.FILE_DIR + CorazaWafAccessLog.ROTATED_FILE_NAME
+                + " && " + adminPost("/reopen_access_logs") + ";"
+                + " fi; done";
+        return new ContainerBuilder()
+                .withName(CorazaWaf.NAME_PREFIX + "access-log-rotate")
+                .withImage(envoyImageName + ":" + envoyImageVersion)
+                .withImagePullPolicy("Always")
+                .withCommand("/bin/sh", "-c", script)
+                .withResources(new ResourceRequirementsBuilder()
+                        .addToRequests("cpu", new Quantity("5m"))
+                        .addToRequests("memory", new Quantity("16Mi"))
+                        .addToLimits("memory", new Quantity("32Mi"))
+                        .build())
+                .withVolumeMounts(new VolumeMountBuilder()
+                        .withName(VOLUME_NAME_ACCESS_LOG)
+                        .withMountPath(CorazaWafAccessLog.FILE_DIR)
+                        .build())
+                .build();
+    }
+
+    private static ResourceRequirements resourceRequirements(CorazaWafSpec spec) {
+        CorazaWafResources resources = spec.getResources();
+        ResourceRequirementsBuilder builder = new ResourceRequirementsBuilder();
+        Quantity memoryRequest = memoryRequest(spec);
+        if (memoryRequest != null) {
+            builder.addToRequests("memory", memoryRequest);
+        }
+        if (resources.getCpuRequest() != null) {
+            builder.addToRequests("cpu", new Quantity(resources.getCpuRequest()));
+        }
+        if (resources.getCpuLimit() != null) {
+            builder.addToLimits("cpu", new Quantity(resources.getCpuLimit()));
+        }
+        if (resources.getMemoryLimit() != null) {
+            builder.addToLimits("memory", new Quantity(resources.getMemoryLimit()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * GOMEMLIMIT for the Go runtime of the Coraza filter running within the Envoy process, if there is a memory limit.
+     */
+    private static List<EnvVar> envoyEnv(CorazaWafSpec spec) {
+        Long goMemoryLimit = spec.getResources().goMemoryLimitBytes(corazaHeapBytes(spec), memoryVolumesBytes(spec));
+        if (goMemoryLimit == null) {
+            return null;
+        }
+        return List.of(new EnvVarBuilder().withName("GOMEMLIMIT").withValue(String.valueOf(goMemoryLimit)).build());
+    }
+
+    private static List<String> envoyArgs(CorazaWafSpec spec) {
+        Integer concurrency = envoyConcurrency(spec);
+        CorazaWafAccessLog accessLog = spec.getAccessLog();
+        int drainSeconds = spec.getRollout().getDrainSeconds();
+        if (concurrency == null && !accessLog.isFileSink() && drainSeconds == 0) {
+            // keep the default command of the image
+            return null;
+        }
+        List<String> args = new ArrayList<>(List.of("envoy", "-c", ENVOY_CONFIG_PATH + FILENAME_ENVOY));
+        if (drainSeconds > 0) {
+            // ask all connections to close right away when draining starts, instead of spreading it over the drain time
+            args.addAll(List.of("--drain-time-s", String.valueOf(drainSeconds), "--drain-strategy", "immediate"));
+        }
+        if (concurrency != null) {
+            args.addAll(List.of("--concurrency", String.valueOf(concurrency)));
+        }
+        if (accessLog.isFileSink()) {
+            args.addAll(List.of("--file-flush-interval-msec", String.valueOf(accessLog.getFileFlushIntervalMs())));
+        }
+        return args;
+    }
+
+    private static List<VolumeMount> volumeMounts(CorazaWafSpec spec) {
+        List<VolumeMount> volumeMounts = new ArrayList<>(List.of(
+                new VolumeMountBuilder()
+                        .withName(VOLUME_NAME_CONFIG)
+                        .withMountPath(ENVOY_CONFIG_PATH)
+                        .build(),
+                new VolumeMountBuilder()
+                        .withName(VOLUME_NAME_CORAZA_TMP)
+                        .withMountPath("/tmp")
+                        .build()));
+        if (spec.getAccessLog().isFileSink()) {
+            volumeMounts.add(new VolumeMountBuilder()
+                    .withName(VOLUME_NAME_ACCESS_LOG)
+                    .withMountPath(CorazaWafAccessLog.FILE_DIR)
+                    .build());
+        }
+        return volumeMounts;
+    }
+
+    private static List<Volume> volumes(CorazaWaf corazaWaf) {
+        List<Volume> volumes = new ArrayList<>(List.of(
+                new VolumeBuilder()
+                        .withName(VOLUME_NAME_CONFIG)
+                        .withConfigMap(new ConfigMapVolumeSourceBuilder()
+                                .withName(CorazaWafEnvoyConfigMapResource.CM_NAME_PREFIX + corazaWaf.getMetadata().getName())
+                                .build()
+                        )
+                        .build(),
+                new VolumeBuilder()
+                        .withName(VOLUME_NAME_CORAZA_TMP)
+                        .withEmptyDir(new EmptyDirVolumeSourceBuilder()
+                                .withMedium(corazaWaf.getSpec().getResources().getTmpVolumeMedium()
+                                        == CorazaWafResources.TmpVolumeMedium.MEMORY ? "Memory" : null)
+                                .withSizeLimit(tmpVolumeSizeLimit(corazaWaf.getSpec()))
+                                .build())
+                        .build()));
+        CorazaWafAccessLog accessLog = corazaWaf.getSpec().getAccessLog();
+        if (accessLog.isFileSink()) {
+            // memory backed, so writing the access log does not cost disk IO
+            volumes.add(new VolumeBuilder()
+                    .withName(VOLUME_NAME_ACCESS_LOG)
+                    .withEmptyDir(new EmptyDirVolumeSourceBuilder()
+                            .withMedium("Memory")
+                            .withSizeLimit(new Quantity(accessLog.getFileVolumeSizeLimit()))
+                            .build())
+                    .build());
+        }
+        return volumes;
+    }
+
+    private List<Container> containers(CorazaWaf corazaWaf, Container envoy) {
+        List<Container> containers = new ArrayList<>(List.of(envoy));
+        if (corazaWaf.getSpec().getAccessLog().isFileSink()) {
+            containers.add(accessLogRotateContainer(corazaWaf.getSpec()));
+        }
+        return containers;
+    }
+
+    public CorazaWafDeploymentResource() {
+        super(Deployment.class);
+    }
+
+    @Override
+    protected Deployment desiredResource(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+        Map<String, String> selectorLabels = selectorLabels(corazaWaf);
 
         Map<String, String> metadataLabels = new HashMap<>(5);
         metadataLabels.put("app.kubernetes.io/name", DEPLOY_NAME_PREFIX);
@@ -56,7 +366,8 @@ public class CorazaWafDeploymentResource extends CRUDKubernetesDependentResource
                     .withLabels(metadataLabels)
                 .endMetadata()
                 .withNewSpec()
-                    .withReplicas(1)
+                    // leave the replicas to the HorizontalPodAutoscaler if autoscaling is enabled
+                    .withReplicas(corazaWaf.getSpec().getAutoscaling().isEnabled() ? null : corazaWaf.getSpec().getReplicas())
                     .withProgressDeadlineSeconds(600)
                     .withRevisionHistoryLimit(3)
                     .withNewSelector()
@@ -65,52 +376,29 @@ public class CorazaWafDeploymentResource extends CRUDKubernetesDependentResource
                     .withNewStrategy()
                         .withType("RollingUpdate")
                         .withNewRollingUpdate()
-                        .withMaxSurge(new IntOrString(25))
-                        .withMaxUnavailable(new IntOrString(25))
+                        .withMaxSurge(CorazaWafRollout.intOrPercent(corazaWaf.getSpec().getRollout().getMaxSurge()))
+                        .withMaxUnavailable(CorazaWafRollout.intOrPercent(corazaWaf.getSpec().getRollout().getMaxUnavailable()))
                         .endRollingUpdate()
                     .endStrategy()
                     .withNewTemplate()
                         .withNewMetadata()
                             .withLabels(metadataLabels)
+                            .addToAnnotations(BOOTSTRAP_DIGEST_ANNOTATION,
+                                    Utils.digest(templates.envoyTemplateData(corazaWaf)))
                         .endMetadata()
                         .withNewSpec()
-                            .withContainers(
+                            .withTerminationGracePeriodSeconds((long) corazaWaf.getSpec().getRollout().getTerminationGracePeriodSeconds())
+                            .withContainers(containers(corazaWaf,
                                 new ContainerBuilder()
                                     .withName(CorazaWaf.NAME_PREFIX + "envoy")
                                     .withImage(envoyImageName + ":" + envoyImageVersion)
                                     .withImagePullPolicy("Always")
-                                    .withPorts(
-                                            new ContainerPortBuilder()
-                                                    .withName("traffic-port")
-                                                    .withContainerPort(CorazaWaf.TRAFFIC_CONTAINER_PORT.getIntVal())
-                                                    .withProtocol("TCP")
-                                                    .build(),
-                                            new ContainerPortBuilder()
-                                                    .withName("admin-port")
-                                                    .withContainerPort(CorazaWaf.ADMIN_CONTAINER_PORT.getIntVal())
-                                                    .withProtocol("TCP")
-                                                    .build()
-                                    )
-                                    .withVolumeMounts(
-                                            new VolumeMountBuilder()
-                                                    .withName(VOLUME_NAME_CONFIG)
-                                                    .withMountPath(ENVOY_CONFIG_PATH)
-                                                    .build(),
-                                            /*new VolumeMountBuilder()
-                                                    .withName(VOLUME_NAME_CONFIG)
-                                                    .withMountPath(ENVOY_CONFIG_PATH + DIRNAME_XDS + FILENAME_CDS)
-                                                    .withSubPath(FILENAME_CDS)
-                                                    .build(),
-                                            new VolumeMountBuilder()
-                                                    .withName(VOLUME_NAME_CONFIG)
-                                                    .withMountPath(ENVOY_CONFIG_PATH + DIRNAME_XDS + FILENAME_LDS)
-                                                    .withSubPath(FILENAME_LDS)
-                                                    .build(),*/
-                                            new VolumeMountBuilder()
-                                                    .withName(VOLUME_NAME_CORAZA_TMP)
-                                                    .withMountPath("/tmp")
-                                                    .build()
-                                    )
+                                    .withArgs(envoyArgs(corazaWaf.getSpec()))
+                                    .withEnv(envoyEnv(corazaWaf.getSpec()))
+                                    .withResources(resourceRequirements(corazaWaf.getSpec()))
+                                    .withPorts(containerPorts(corazaWaf.getSpec()))
+                                    .withVolumeMounts(volumeMounts(corazaWaf.getSpec()))
+                                    .withLifecycle(lifecycle(corazaWaf.getSpec()))
                                     .withLivenessProbe(
                                             new ProbeBuilder()
                                                     .withFailureThreshold(3)
@@ -141,20 +429,8 @@ public class CorazaWafDeploymentResource extends CRUDKubernetesDependentResource
                                                     .withTimeoutSeconds(10)
                                                     .build())
                                     .build()
-                            )
-                            .withVolumes(
-                                    new VolumeBuilder()
-                                            .withName(VOLUME_NAME_CONFIG)
-                                            .withConfigMap(new ConfigMapVolumeSourceBuilder()
-                                                    .withName(CorazaWafEnvoyConfigMapResource.CM_NAME_PREFIX + corazaWaf.getMetadata().getName())
-                                                    .build()
-                                            )
-                                            .build(),
-                                    new VolumeBuilder()
-                                            .withName(VOLUME_NAME_CORAZA_TMP)
-                                            .withEmptyDir(new EmptyDirVolumeSourceBuilder().build())
-                                            .build()
-                            )
+                            ))
+                            .withVolumes(volumes(corazaWaf))
                         .endSpec()
                     .endTemplate()
                 .endSpec()
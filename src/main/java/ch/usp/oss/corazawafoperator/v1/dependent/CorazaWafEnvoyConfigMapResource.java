@@ -5,13 +5,15 @@ package ch.usp.oss.corazawafoperator.v1.dependent;
 
 
 import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafBackendEndpoints;
 import ch.usp.oss.corazawafoperator.v1.CorazaWafEnvoyConfigTemplate;
 import ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafSharedGateway;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafXdsServer;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.javaoperatorsdk.operator.api.config.informer.Informer;
 import io.javaoperatorsdk.operator.api.reconciler.Context;
-import io.javaoperatorsdk.operator.processing.dependent.kubernetes.CRUDKubernetesDependentResource;
 import io.javaoperatorsdk.operator.processing.dependent.kubernetes.KubernetesDependent;
 import io.javaoperatorsdk.operator.processing.event.ResourceID;
 import jakarta.inject.Inject;
@@ -20,21 +22,38 @@ import lombok.extern.jbosslog.JBossLog;
 import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_KEY;
 import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_VALUE;
 
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @JBossLog
 @KubernetesDependent(informer = @Informer(labelSelector = CorazaWafReconciler.SELECTOR))
-public class CorazaWafEnvoyConfigMapResource extends CRUDKubernetesDependentResource<ConfigMap, CorazaWaf> {
+public class CorazaWafEnvoyConfigMapResource extends CorazaWafDependentResource<ConfigMap> {
 
     public static final String CM_NAME_PREFIX = CorazaWaf.NAME_PREFIX + "envoyconfig-";
     public static final String FILENAME_ENVOY = "envoy.yaml";
     public static final String DIRNAME_XDS = "xds/";
     public static final String FILENAME_CDS = "cds.yaml";
     public static final String FILENAME_LDS = "lds.yaml";
+    public static final String FILENAME_EDS = "eds.yaml";
+    /** Size metric name of all Coraza rule files together, their names change with their content */
+    public static final String FILENAME_RULES = "rules";
+    /** Max. size of the data of a ConfigMap (etcd request size limit) */
+    public static final int MAX_DATA_BYTES = 1024 * 1024;
 
     @Inject
     CorazaWafEnvoyConfigTemplate templates;
 
+    @Inject
+    CorazaWafXdsServer xdsServer;
+
+    public CorazaWafEnvoyConfigMapResource() {
+        super(ConfigMap.class);
+    }
+
     @Override
-    protected ConfigMap desired(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+    protected ConfigMap desiredResource(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
 
 
         final ConfigMapBuilder configMapBuilder = new ConfigMapBuilder()
@@ -46,10 +65,47 @@ public class CorazaWafEnvoyConfigMapResource extends CRUDKubernetesDependentReso
                 .addToLabels("app.kubernetes.io/part-of", CorazaWaf.NAME_PREFIX + corazaWaf.getMetadata().getName())
                 .addToLabels(SELECTOR_KEY, SELECTOR_VALUE)
                 .endMetadata();
-        configMapBuilder.addToData(FILENAME_ENVOY, templates.getEnvoyYaml());
-        configMapBuilder.addToData(FILENAME_CDS, templates.getCdsYaml(corazaWaf.getSpec().getBackend()));
-        configMapBuilder.addToData(FILENAME_LDS, templates.getLDsYaml(corazaWaf));
+        @SuppressWarnings("unchecked")
+        List<CorazaWaf> members = context.managedWorkflowAndDependentResourceContext()
+                .get(CorazaWafSharedGateway.CONTEXT_KEY, List.class)
+                .orElseGet(() -> CorazaWafSharedGateway.members(corazaWaf, context));
+        List<CorazaWafSharedGateway.Tenant> tenants = CorazaWafSharedGateway.tenants(corazaWaf, members);
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put(FILENAME_ENVOY, templates.getEnvoyYaml(corazaWaf));
+        data.put(FILENAME_CDS, templates.getCdsYaml(corazaWaf, tenants));
+        data.put(FILENAME_LDS, templates.getLDsYaml(corazaWaf, tenants));
+        // rule files are in the same ConfigMap as the listener including them, so both are updated atomically
+        Map<String, String> ruleFiles = templates.getRuleFiles(tenants);
+        data.putAll(ruleFiles);
+        if (CorazaWafBackendEndpoints.isEnabled(corazaWaf)) {
+            @SuppressWarnings("unchecked")
+            List<CorazaWafBackendEndpoints.BackendEndpoint> endpoints = context.managedWorkflowAndDependentResourceContext()
+                    .get(CorazaWafBackendEndpoints.CONTEXT_KEY, List.class)
+                    .orElseGet(() -> CorazaWafBackendEndpoints.resolve(corazaWaf, context));
+            data.put(FILENAME_EDS, templates.getEdsYaml(endpoints));
+        }
+        // the xDS server pushes lds/cds/eds itself, the pods then only read the bootstrap config from the ConfigMap
+        configMapBuilder.addToData(xdsServer.isEnabled() ? Map.of(FILENAME_ENVOY, data.get(FILENAME_ENVOY)) : data);
         ConfigMap configMap = configMapBuilder.build();
+        long dataBytes = 0;
+        long ruleFileBytes = 0;
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            long bytes = entry.getValue().getBytes(StandardCharsets.UTF_8).length;
+            if (configMap.getData().containsKey(entry.getKey())) {
+                dataBytes += entry.getKey().length() + bytes;
+            }
+            if (ruleFiles.containsKey(entry.getKey())) {
+                ruleFileBytes += bytes;
+            } else {
+                metrics.recordConfigSize(corazaWaf, entry.getKey(), bytes);
+            }
+        }
+        metrics.recordConfigSize(corazaWaf, FILENAME_RULES, ruleFileBytes);
+        if (dataBytes > MAX_DATA_BYTES) {
+            throw new IllegalStateException(String.format(
+                    "Envoy config of %d bytes exceeds the ConfigMap limit of %d bytes, reduce the number of rule exceptions and path settings",
+                    dataBytes, MAX_DATA_BYTES));
+        }
         log.infof("Generated desired Coraza WAF Config Map: %s", ResourceID.fromResource(configMap));
         log.debug("ConfigMap: " + configMap);
         return configMap;
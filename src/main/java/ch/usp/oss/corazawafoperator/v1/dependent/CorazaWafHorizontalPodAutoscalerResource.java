@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafSharedGateway;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafAutoscaling;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.autoscaling.v2.HorizontalPodAutoscaler;
+import io.fabric8.kubernetes.api.model.autoscaling.v2.HorizontalPodAutoscalerBuilder;
+import io.fabric8.kubernetes.api.model.autoscaling.v2.MetricSpec;
+import io.fabric8.kubernetes.api.model.autoscaling.v2.MetricSpecBuilder;
+import io.javaoperatorsdk.operator.api.config.informer.Informer;
+import io.javaoperatorsdk.operator.api.reconciler.Context;
+import io.javaoperatorsdk.operator.api.reconciler.dependent.DependentResource;
+import io.javaoperatorsdk.operator.processing.dependent.kubernetes.KubernetesDependent;
+import io.javaoperatorsdk.operator.processing.dependent.workflow.Condition;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_KEY;
+import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_VALUE;
+import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafDeploymentResource.DEPLOY_NAME_PREFIX;
+
+@JBossLog
+@KubernetesDependent(informer = @Informer(labelSelector = CorazaWafReconciler.SELECTOR))
+public class CorazaWafHorizontalPodAutoscalerResource extends CorazaWafDependentResource<HorizontalPodAutoscaler> {
+
+    private static final String HPA_NAME_PREFIX = CorazaWaf.NAME_PREFIX + "hpa";
+
+    public CorazaWafHorizontalPodAutoscalerResource() {
+        super(HorizontalPodAutoscaler.class);
+    }
+
+    @Override
+    protected HorizontalPodAutoscaler desiredResource(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+        CorazaWafAutoscaling autoscaling = corazaWaf.getSpec().getAutoscaling();
+        List<MetricSpec> metrics = new ArrayList<>(2);
+        metrics.add(new MetricSpecBuilder()
+                .withType("Resource")
+                .withNewResource()
+                    .withName("cpu")
+                    .withNewTarget()
+                        .withType("Utilization")
+                        .withAverageUtilization(autoscaling.getTargetCpuUtilizationPercentage())
+                    .endTarget()
+                .endResource()
+                .build());
+        if (autoscaling.getTargetRequestsPerSecond() != null) {
+            metrics.add(new MetricSpecBuilder()
+                    .withType("Pods")
+                    .withNewPods()
+                        .withNewMetric()
+                            .withName(autoscaling.getRequestsPerSecondMetric())
+                        .endMetric()
+                        .withNewTarget()
+                            .withType("AverageValue")
+                            .withAverageValue(new Quantity(String.valueOf(autoscaling.getTargetRequestsPerSecond())))
+                        .endTarget()
+                    .endPods()
+                    .build());
+        }
+
+        HorizontalPodAutoscaler hpa = new HorizontalPodAutoscalerBuilder()
+                .withNewMetadata()
+                .withName(HPA_NAME_PREFIX + "-" + corazaWaf.getMetadata().getName())
+                .withNamespace(corazaWaf.getMetadata().getNamespace())
+                .addToLabels("app.kubernetes.io/name", HPA_NAME_PREFIX)
+                .addToLabels("app.kubernetes.io/instance", corazaWaf.getMetadata().getName())
+                .addToLabels("app.kubernetes.io/part-of", CorazaWaf.NAME_PREFIX + corazaWaf.getMetadata().getName())
+                .addToLabels(SELECTOR_KEY, SELECTOR_VALUE)
+                .endMetadata()
+                .withNewSpec()
+                .withNewScaleTargetRef()
+                    .withApiVersion("apps/v1")
+                    .withKind("Deployment")
+                    .withName(DEPLOY_NAME_PREFIX + "-" + corazaWaf.getMetadata().getName())
+                .endScaleTargetRef()
+                .withMinReplicas(autoscaling.getMinReplicas())
+                .withMaxReplicas(autoscaling.getMaxReplicas())
+                .withMetrics(metrics)
+                .endSpec()
+                .build();
+        log.info("Generate desired Coraza WAF HorizontalPodAutoscaler: " + ResourceID.fromResource(hpa));
+        log.debug("HorizontalPodAutoscaler: " + hpa);
+        return hpa;
+    }
+
+    /**
+     * Only manage the HPA if autoscaling is enabled (and the CR has own Envoy pods), otherwise an existing one gets deleted.
+     */
+    public static class AutoscalingEnabledCondition implements Condition<HorizontalPodAutoscaler, CorazaWaf> {
+        @Override
+        public boolean isMet(DependentResource<HorizontalPodAutoscaler, CorazaWaf> dependentResource,
+                             CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+            return corazaWaf.getSpec().getAutoscaling().isEnabled() && !CorazaWafSharedGateway.isMember(corazaWaf);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafSharedGateway;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.ServicePortBuilder;
+import io.javaoperatorsdk.operator.api.config.informer.Informer;
+import io.javaoperatorsdk.operator.api.reconciler.Context;
+import io.javaoperatorsdk.operator.api.reconciler.dependent.DependentResource;
+import io.javaoperatorsdk.operator.processing.dependent.kubernetes.KubernetesDependent;
+import io.javaoperatorsdk.operator.processing.dependent.workflow.Condition;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import lombok.extern.jbosslog.JBossLog;
+
+import static ch.usp.oss.corazawafoperator.v1.CorazaWaf.METRICS_CONTAINER_PORT;
+import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_KEY;
+import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_VALUE;
+
+/**
+ * Service for the Prometheus metrics of the WAF pods (/stats/prometheus). It targets a dedicated Envoy listener
+ * only forwarding this path to the admin API, the rest of the admin API (e.g. /quitquitquit) is not exposed.
+ */
+@JBossLog
+@KubernetesDependent(informer = @Informer(labelSelector = CorazaWafMetricsServiceResource.SELECTOR))
+public class CorazaWafMetricsServiceResource extends CorazaWafDependentResource<Service> {
+
+    public static final String SVC_NAME_PREFIX = CorazaWaf.NAME_PREFIX + "metrics";
+    public static final String COMPONENT_KEY = "app.kubernetes.io/component";
+    public static final String COMPONENT_VALUE = "metrics";
+    public static final String SELECTOR = CorazaWafReconciler.SELECTOR + "," + COMPONENT_KEY + "=" + COMPONENT_VALUE;
+    public static final String PORT_NAME = "metrics";
+    public static final String METRICS_PATH = "/stats/prometheus";
+
+    public CorazaWafMetricsServiceResource() {
+        super(Service.class);
+    }
+
+    @Override
+    protected Service desiredResource(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+        Service service = new ServiceBuilder()
+                .withNewMetadata()
+                .withName(SVC_NAME_PREFIX + "-" + corazaWaf.getMetadata().getName())
+                .withNamespace(corazaWaf.getMetadata().getNamespace())
+                .addToLabels("app.kubernetes.io/name", SVC_NAME_PREFIX)
+                .addToLabels("app.kubernetes.io/instance", corazaWaf.getMetadata().getName())
+                .addToLabels("app.kubernetes.io/part-of", CorazaWaf.NAME_PREFIX + corazaWaf.getMetadata().getName())
+                .addToLabels(COMPONENT_KEY, COMPONENT_VALUE)
+                .addToLabels(SELECTOR_KEY, SELECTOR_VALUE)
+                .endMetadata()
+                .withNewSpec()
+                .withPorts(new ServicePortBuilder()
+                        .withName(PORT_NAME)
+                        .withPort(METRICS_CONTAINER_PORT.getIntVal())
+                        .withTargetPort(METRICS_CONTAINER_PORT)
+                        .withProtocol("TCP")
+                        .build())
+                .withSelector(CorazaWafDeploymentResource.selectorLabels(corazaWaf))
+                .endSpec()
+                .build();
+        log.info("Generate desired Coraza WAF metrics Service: " + ResourceID.fromResource(service));
+        log.debug("Service: " + service);
+        return service;
+    }
+
+    /**
+     * Only manage the metrics Service if requested (and the CR has own Envoy pods), otherwise an existing one gets deleted.
+     */
+    public static class MetricsServiceEnabledCondition implements Condition<Service, CorazaWaf> {
+        @Override
+        public boolean isMet(DependentResource<Service, CorazaWaf> dependentResource,
+                             CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+            return corazaWaf.getSpec().getTelemetry().isMetricsServiceEnabled() && !CorazaWafSharedGateway.isMember(corazaWaf);
+        }
+    }
+}
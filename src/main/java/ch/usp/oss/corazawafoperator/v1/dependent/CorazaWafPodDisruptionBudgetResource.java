@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWaf;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafSharedGateway;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafRollout;
+import io.fabric8.kubernetes.api.model.policy.v1.PodDisruptionBudget;
+import io.fabric8.kubernetes.api.model.policy.v1.PodDisruptionBudgetBuilder;
+import io.javaoperatorsdk.operator.api.config.informer.Informer;
+import io.javaoperatorsdk.operator.api.reconciler.Context;
+import io.javaoperatorsdk.operator.api.reconciler.dependent.DependentResource;
+import io.javaoperatorsdk.operator.processing.dependent.kubernetes.KubernetesDependent;
+import io.javaoperatorsdk.operator.processing.dependent.workflow.Condition;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import lombok.extern.jbosslog.JBossLog;
+
+import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_KEY;
+import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_VALUE;
+
+@JBossLog
+@KubernetesDependent(informer = @Informer(labelSelector = CorazaWafReconciler.SELECTOR))
+public class CorazaWafPodDisruptionBudgetResource extends CorazaWafDependentResource<PodDisruptionBudget> {
+
+    private static final String PDB_NAME_PREFIX = CorazaWaf.NAME_PREFIX + "pdb";
+
+    public CorazaWafPodDisruptionBudgetResource() {
+        super(PodDisruptionBudget.class);
+    }
+
+    @Override
+    protected PodDisruptionBudget desiredResource(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+        CorazaWafRollout rollout = corazaWaf.getSpec().getRollout();
+        PodDisruptionBudget pdb = new PodDisruptionBudgetBuilder()
+                .withNewMetadata()
+                .withName(PDB_NAME_PREFIX + "-" + corazaWaf.getMetadata().getName())
+                .withNamespace(corazaWaf.getMetadata().getNamespace())
+                .addToLabels("app.kubernetes.io/name", PDB_NAME_PREFIX)
+                .addToLabels("app.kubernetes.io/instance", corazaWaf.getMetadata().getName())
+                .addToLabels("app.kubernetes.io/part-of", CorazaWaf.NAME_PREFIX + corazaWaf.getMetadata().getName())
+                .addToLabels(SELECTOR_KEY, SELECTOR_VALUE)
+                .endMetadata()
+                .withNewSpec()
+                .withNewSelector()
+                    .withMatchLabels(CorazaWafDeploymentResource.selectorLabels(corazaWaf))
+                .endSelector()
+                .withMaxUnavailable(CorazaWafRollout.intOrPercent(rollout.getPodDisruptionBudgetMaxUnavailable()))
+                .endSpec()
+                .build();
+        log.info("Generate desired Coraza WAF PodDisruptionBudget: " + ResourceID.fromResource(pdb));
+        log.debug("PodDisruptionBudget: " + pdb);
+        return pdb;
+    }
+
+    /**
+     * Only manage the PDB if enabled (and the CR has own Envoy pods), otherwise an existing one gets deleted.
+     */
+    public static class PodDisruptionBudgetEnabledCondition implements Condition<PodDisruptionBudget, CorazaWaf> {
+        @Override
+        public boolean isMet(DependentResource<PodDisruptionBudget, CorazaWaf> dependentResource,
+                             CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+            return corazaWaf.getSpec().getRollout().isPodDisruptionBudget() && !CorazaWafSharedGateway.isMember(corazaWaf);
+        }
+    }
+}
@@ -10,7 +10,6 @@ import io.fabric8.kubernetes.api.model.ServiceBuilder;
 import io.fabric8.kubernetes.api.model.ServicePortBuilder;
 import io.javaoperatorsdk.operator.api.config.informer.Informer;
 import io.javaoperatorsdk.operator.api.reconciler.Context;
-import io.javaoperatorsdk.operator.processing.dependent.kubernetes.CRUDKubernetesDependentResource;
 import io.javaoperatorsdk.operator.processing.dependent.kubernetes.KubernetesDependent;
 import io.javaoperatorsdk.operator.processing.event.ResourceID;
 import lombok.extern.jbosslog.JBossLog;
@@ -23,13 +22,19 @@ import static ch.usp.oss.corazawafoperator.v1.CorazaWafReconciler.SELECTOR_VALUE
 import static ch.usp.oss.corazawafoperator.v1.dependent.CorazaWafDeploymentResource.DEPLOY_NAME_PREFIX;
 
 @JBossLog
-@KubernetesDependent(informer = @Informer(labelSelector = CorazaWafReconciler.SELECTOR))
-public class CorazaWafServiceResource extends CRUDKubernetesDependentResource<Service, CorazaWaf> {
+@KubernetesDependent(informer = @Informer(labelSelector = CorazaWafServiceResource.SELECTOR))
+public class CorazaWafServiceResource extends CorazaWafDependentResource<Service> {
 
-    private static final String SVC_NAME_PREFIX = CorazaWaf.NAME_PREFIX + "service";
+    public static final String SVC_NAME_PREFIX = CorazaWaf.NAME_PREFIX + "service";
+    /** The metrics Service is watched by its own dependent */
+    public static final String SELECTOR = CorazaWafReconciler.SELECTOR + ",!" + CorazaWafMetricsServiceResource.COMPONENT_KEY;
+
+    public CorazaWafServiceResource() {
+        super(Service.class);
+    }
 
     @Override
-    protected Service desired(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
+    protected Service desiredResource(CorazaWaf corazaWaf, Context<CorazaWaf> context) {
         Service service = new ServiceBuilder()
                 .withNewMetadata()
                 .withName(SVC_NAME_PREFIX + "-" + corazaWaf.getMetadata().getName())
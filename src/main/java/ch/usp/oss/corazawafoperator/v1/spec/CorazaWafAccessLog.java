@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import ch.usp.oss.corazawafoperator.v1.Utils;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Max;
+import io.fabric8.generator.annotation.Min;
+import io.fabric8.generator.annotation.Pattern;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Envoy access log of the WAF listener.
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafAccessLog {
+
+    /** Status code Coraza answers blocked requests with */
+    public static final int BLOCKED_STATUS_CODE = 403;
+
+    /** Directory of the memory backed log volume, the log file in it and the file it is rotated to */
+    public static final String FILE_DIR = "/var/log/envoy/";
+    public static final String FILE_NAME = "access.log";
+    public static final String ROTATED_FILE_NAME = FILE_NAME + ".1";
+
+    /** Min. size of the log volume, it holds the log file, the rotated one and what is written between two checks */
+    private static final String MIN_FILE_VOLUME_SIZE_LIMIT = "16Mi";
+
+    /** Envoy runtime key overriding the sampling percentage */
+    public static final String SAMPLING_RUNTIME_KEY = "corazawaf.access_log.sampling";
+
+    private static final ObjectMapper FILTER_MAPPER = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    public enum Format { TEXT, JSON }
+
+    public enum Sink { STDOUT, FILE }
+
+    @JsonPropertyDescription("Whether requests are logged at all" +
+            " || default true")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("true")
+    private boolean enabled = true;
+
+    @JsonPropertyDescription("Log line format (TEXT, JSON)" +
+            " || default TEXT")
+    @Builder.Default
+    @Pattern("(TEXT|JSON)")
+    @Default("TEXT")
+    private Format format = Format.TEXT;
+
+    @JsonPropertyDescription("Where the log lines are written to (STDOUT; FILE = buffered file " +
+            FILE_DIR + FILE_NAME + " on a memory backed volume, to be shipped by a sidecar or node agent " +
+            "following the file by name; it is never truncated, but rotated to " + ROTATED_FILE_NAME +
+            " (replacing the previous one) when it exceeds a third of fileVolumeSizeLimit)" +
+            " || default STDOUT")
+    @Builder.Default
+    @Pattern("(STDOUT|FILE)")
+    @Default("STDOUT")
+    private Sink sink = Sink.STDOUT;
+
+    @JsonPropertyDescription("Size limit of the memory backed log volume if sink is FILE (e.g. '64Mi'), " +
+            "it counts against the memory of the pod (and is added to a derived memory request)" +
+            " || default 64Mi, min " + MIN_FILE_VOLUME_SIZE_LIMIT)
+    @Builder.Default
+    @Default("64Mi")
+    private String fileVolumeSizeLimit = "64Mi";
+
+    @JsonPropertyDescription("Interval in milliseconds in which Envoy flushes the buffered log file if sink is FILE" +
+            " || default 10000, min 100")
+    @Builder.Default
+    @Min(100)
+    @Default("10000")
+    private int fileFlushIntervalMs = 10000;
+
+    @JsonPropertyDescription("Percentage of the requests (passing the filters) which are logged, " +
+            "overridable at runtime by the Envoy runtime key '" + SAMPLING_RUNTIME_KEY + "'" +
+            " || default 100, min 0, max 100")
+    @Builder.Default
+    @Min(0)
+    @Max(100)
+    @Default("100")
+    private double samplingPercent = 100;
+
+    @JsonPropertyDescription("Log blocked requests (status " + BLOCKED_STATUS_CODE + "); " +
+            "if any of onlyBlocked, onlyNon2xx or minDurationMs is set, a request is logged if it matches one of them" +
+            " || default false")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("false")
+    private boolean onlyBlocked = false;
+
+    @JsonPropertyDescription("Log requests with a response status outside of 2xx" +
+            " || default false")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("false")
+    private boolean onlyNon2xx = false;
+
+    @JsonPropertyDescription("Log requests which took at least this many milliseconds" +
+            " || optional, min 0")
+    @Min(0)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer minDurationMs;
+
+    @JsonIgnore
+    public boolean isFileSink() {
+        return enabled && sink == Sink.FILE;
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public String getFilePath() {
+        return FILE_DIR + FILE_NAME;
+    }
+
+    @JsonIgnore
+    public long getFileVolumeSizeLimitBytes() {
+        return Utils.quantityAmount("accessLog.fileVolumeSizeLimit", fileVolumeSizeLimit).longValue();
+    }
+
+    /**
+     * Size at which the log file is rotated: the file, the rotated one and the lines written until the next check
+     * have to fit into the volume.
+     */
+    @JsonIgnore
+    public long getFileRotateBytes() {
+        return getFileVolumeSizeLimitBytes() / 3;
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public boolean isJson() {
+        return format == Format.JSON;
+    }
+
+    /**
+     * Envoy AccessLogFilter as JSON (which is valid YAML) or null if every request is logged. The conditions
+     * are combined with an orFilter, the sampling is applied to the requests matching them.
+     */
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public String getFilterJson() {
+        List<Map<String, Object>> conditions = new ArrayList<>();
+        if (onlyBlocked) {
+            conditions.add(statusCodeFilter("EQ", BLOCKED_STATUS_CODE, "blocked_status"));
+        }
+        if (onlyNon2xx) {
+            conditions.add(statusCodeFilter("LE", 199, "non_2xx_below"));
+            conditions.add(statusCodeFilter("GE", 300, "non_2xx_above"));
+        }
+        if (minDurationMs != null) {
+            conditions.add(Map.of("durationFilter", Map.of("comparison", comparison("GE", minDurationMs, "min_duration_ms"))));
+        }
+        List<Map<String, Object>> filters = new ArrayList<>();
+        if (samplingPercent < 100) {
+            filters.add(Map.of("runtimeFilter", Map.of(
+                    "runtimeKey", SAMPLING_RUNTIME_KEY,
+                    "percentSampled", Map.of(
+                            "numerator", Math.round(samplingPercent * 10_000),
+                            "denominator", "MILLION"))));
+        }
+        // and/or filters need at least two sub filters
+        if (conditions.size() == 1) {
+            filters.add(conditions.getFirst());
+        } else if (conditions.size() > 1) {
+            filters.add(Map.of("orFilter", Map.of("filters", conditions)));
+        }
+        if (filters.isEmpty()) {
+            return null;
+        }
+        Object filter = filters.size() == 1 ? filters.getFirst() : Map.of("andFilter", Map.of("filters", filters));
+        try {
+            return FILTER_MAPPER.writeValueAsString(filter);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to render access log filter", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the log volume size limit is invalid
+     */
+    public void validate() {
+        if (isFileSink() && getFileVolumeSizeLimitBytes()
+                < Quantity.getAmountInBytes(new Quantity(MIN_FILE_VOLUME_SIZE_LIMIT)).longValue()) {
+            throw new IllegalArgumentException("accessLog.fileVolumeSizeLimit (" + fileVolumeSizeLimit
+                    + ") must be at least " + MIN_FILE_VOLUME_SIZE_LIMIT);
+        }
+    }
+
+    private static Map<String, Object> statusCodeFilter(String op, int statusCode, String runtimeKey) {
+        return Map.of("statusCodeFilter", Map.of("comparison", comparison(op, statusCode, runtimeKey)));
+    }
+
+    private static Map<String, Object> comparison(String op, int value, String runtimeKey) {
+        return Map.of("op", op, "value", Map.of("defaultValue", value, "runtimeKey", "corazawaf.access_log." + runtimeKey));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Max;
+import io.fabric8.generator.annotation.Min;
+import io.fabric8.generator.annotation.Pattern;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Horizontal autoscaling of the WAF Deployment.
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafAutoscaling {
+
+    @JsonPropertyDescription("Whether to manage a HorizontalPodAutoscaler for the WAF Deployment " +
+            "(if enabled, the replicas setting is ignored)" +
+            " || default false")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("false")
+    private boolean enabled = false;
+
+    @JsonPropertyDescription("Minimum number of WAF pods" +
+            " || default 1, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("1")
+    private int minReplicas = 1;
+
+    @JsonPropertyDescription("Maximum number of WAF pods" +
+            " || default 5, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("5")
+    private int maxReplicas = 5;
+
+    @JsonPropertyDescription("Target average CPU utilization in percent of the requested CPU " +
+            "(requires resources.cpuRequest or resources.cpuLimit)" +
+            " || default 70, min 1, max 100")
+    @Builder.Default
+    @Min(1)
+    @Max(100)
+    @Default("70")
+    private int targetCpuUtilizationPercentage = 70;
+
+    @JsonPropertyDescription("Target average requests per second per WAF pod " +
+            "(requires a custom metrics adapter providing requestsPerSecondMetric, e.g. a prometheus-adapter rule " +
+            "on the Envoy stat envoy_http_downstream_rq_total; not set = scale on CPU only)" +
+            " || optional, min 1")
+    @Min(1)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer targetRequestsPerSecond;
+
+    @JsonPropertyDescription("Name of the pods metric providing the requests per second of a WAF pod" +
+            " || default envoy_http_downstream_rq_per_second")
+    @Builder.Default
+    @Default("envoy_http_downstream_rq_per_second")
+    private String requestsPerSecondMetric = "envoy_http_downstream_rq_per_second";
+
+    /**
+     * @throws IllegalArgumentException if the replica range is empty or the CPU utilization cannot be measured
+     */
+    public void validate(CorazaWafResources resources) {
+        if (minReplicas > maxReplicas) {
+            throw new IllegalArgumentException("autoscaling.minReplicas (" + minReplicas
+                    + ") must not be greater than autoscaling.maxReplicas (" + maxReplicas + ")");
+        }
+        // without a CPU request (which defaults to the limit) the HPA cannot compute the utilization, never scales
+        if (enabled && resources.getCpuRequest() == null && resources.getCpuLimit() == null) {
+            throw new IllegalArgumentException("autoscaling requires resources.cpuRequest (or resources.cpuLimit), "
+                    + "the CPU utilization is relative to it");
+        }
+    }
+}
@@ -3,7 +3,10 @@
  */
 package ch.usp.oss.corazawafoperator.v1.spec;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.fabric8.generator.annotation.Default;
 import io.fabric8.generator.annotation.Max;
 import io.fabric8.generator.annotation.Min;
 import io.fabric8.generator.annotation.Pattern;
@@ -20,7 +23,19 @@ import lombok.extern.jackson.Jacksonized;
 @Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
 public class CorazaWafBackend {
 
-    @JsonPropertyDescription("Backend Service hostname" +
+    /**
+     * HTTP protocol used towards the backend, the connections are plain text (no ALPN negotiation without TLS)
+     */
+    public enum UpstreamProtocol { HTTP1, HTTP2 }
+
+    /** How the backend endpoints are discovered */
+    public enum Discovery { DNS, ENDPOINTS }
+
+    /** Load balancing policy across the backend endpoints */
+    public enum LbPolicy { ROUND_ROBIN, LEAST_REQUEST, RANDOM }
+
+    @JsonPropertyDescription("Backend Service hostname " +
+            "(with discovery ENDPOINTS the name of a Service, optionally followed by '.<namespace>')" +
             " || required")
     @Required
     @Pattern(".") // non-empty
@@ -33,4 +48,86 @@ public class CorazaWafBackend {
     @Max(65535)
     private int port;
 
+    @JsonPropertyDescription("Backend endpoint discovery (DNS = connect to the Service hostname, " +
+            "load balanced by kube-proxy; ENDPOINTS = connect directly to the ready pods of the Service " +
+            "as listed in its EndpointSlices, load balanced by Envoy)" +
+            " || default DNS")
+    @Builder.Default
+    @Pattern("(DNS|ENDPOINTS)")
+    @Default("DNS")
+    private Discovery discovery = Discovery.DNS;
+
+    @JsonPropertyDescription("Load balancing policy across the backend endpoints (only useful with discovery ENDPOINTS)" +
+            " || default ROUND_ROBIN")
+    @Builder.Default
+    @Pattern("(ROUND_ROBIN|LEAST_REQUEST|RANDOM)")
+    @Default("ROUND_ROBIN")
+    private LbPolicy lbPolicy = LbPolicy.ROUND_ROBIN;
+
+    @JsonPropertyDescription("Active HTTP health check of the backend endpoints" +
+            " || optional")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private CorazaWafBackendHealthCheck healthCheck;
+
+    @JsonPropertyDescription("Outlier detection ejecting failing backend endpoints" +
+            " || optional")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private CorazaWafBackendOutlierDetection outlierDetection;
+
+    @JsonPropertyDescription("HTTP protocol towards the backend (HTTP1 = HTTP/1.1; HTTP2 = HTTP/2 with prior knowledge, " +
+            "multiplexes requests over few connections)" +
+            " || default HTTP1")
+    @Builder.Default
+    @Pattern("(HTTP1|HTTP2)")
+    @Default("HTTP1")
+    private UpstreamProtocol protocol = UpstreamProtocol.HTTP1;
+
+    @JsonPropertyDescription("Circuit breaker: max. number of connections to the backend" +
+            " || optional (Envoy default 1024), min 1")
+    @Min(1)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer maxConnections;
+
+    @JsonPropertyDescription("Circuit breaker: max. number of requests waiting for a connection" +
+            " || optional (Envoy default 1024), min 1")
+    @Min(1)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer maxPendingRequests;
+
+    @JsonPropertyDescription("Circuit breaker: max. number of active requests to the backend" +
+            " || optional (Envoy default 1024), min 1")
+    @Min(1)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer maxRequests;
+
+    @JsonPropertyDescription("Max. number of requests per backend connection before it is closed" +
+            " || optional (Envoy default unlimited), min 1")
+    @Min(1)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer maxRequestsPerConnection;
+
+    @JsonPropertyDescription("Idle timeout in seconds after which an unused backend connection is closed" +
+            " || optional (Envoy default 3600), min 1")
+    @Min(1)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer idleTimeoutSeconds;
+
+    @JsonPropertyDescription("Idle time in seconds before TCP keepalive probes are sent on backend connections " +
+            "(not set = no TCP keepalive)" +
+            " || optional, min 1")
+    @Min(1)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer tcpKeepaliveSeconds;
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public boolean isCircuitBreakerSet() {
+        return maxConnections != null || maxPendingRequests != null || maxRequests != null;
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public boolean isCommonHttpProtocolOptionsSet() {
+        return maxRequestsPerConnection != null || idleTimeoutSeconds != null;
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Min;
+import io.fabric8.generator.annotation.Pattern;
+import io.fabric8.generator.annotation.Required;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Active HTTP health check of the backend endpoints.
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafBackendHealthCheck {
+
+    @JsonPropertyDescription("HTTP path to check, any 2xx response is healthy" +
+            " || required")
+    @Required
+    @Pattern("^/.*")
+    private String path;
+
+    @JsonPropertyDescription("Interval between health checks in seconds" +
+            " || default 10, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("10")
+    private int intervalSeconds = 10;
+
+    @JsonPropertyDescription("Timeout of a health check in seconds" +
+            " || default 2, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("2")
+    private int timeoutSeconds = 2;
+
+    @JsonPropertyDescription("Number of failed health checks before an endpoint is marked unhealthy" +
+            " || default 3, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("3")
+    private int unhealthyThreshold = 3;
+
+    @JsonPropertyDescription("Number of successful health checks before an endpoint is marked healthy again" +
+            " || default 1, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("1")
+    private int healthyThreshold = 1;
+}
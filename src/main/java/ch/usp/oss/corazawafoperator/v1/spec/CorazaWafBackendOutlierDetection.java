@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Max;
+import io.fabric8.generator.annotation.Min;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Passive outlier detection, temporarily ejecting backend endpoints which return errors.
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafBackendOutlierDetection {
+
+    @JsonPropertyDescription("Number of consecutive 5xx responses before an endpoint is ejected" +
+            " || default 5, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("5")
+    private int consecutive5xx = 5;
+
+    @JsonPropertyDescription("Interval between ejection sweeps in seconds" +
+            " || default 10, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("10")
+    private int intervalSeconds = 10;
+
+    @JsonPropertyDescription("Base time an endpoint stays ejected in seconds, multiplied by the number of ejections" +
+            " || default 30, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("30")
+    private int baseEjectionTimeSeconds = 30;
+
+    @JsonPropertyDescription("Max. percentage of endpoints which can be ejected at the same time" +
+            " || default 50, min 1, max 100")
+    @Builder.Default
+    @Min(1)
+    @Max(100)
+    @Default("50")
+    private int maxEjectionPercent = 50;
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Pattern;
+import io.fabric8.generator.annotation.Required;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Path which is routed to the backend without passing the Coraza filter (e.g. static assets, health checks).
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafBypassPath {
+
+    /** How the path is matched, rendered as the corresponding Envoy route match */
+    public enum Match {
+        PREFIX("prefix"), EXACT("path"), REGEX("safeRegex");
+
+        private final String routeMatchKey;
+
+        Match(String routeMatchKey) {
+            this.routeMatchKey = routeMatchKey;
+        }
+
+        public String getRouteMatchKey() {
+            return routeMatchKey;
+        }
+    }
+
+    @JsonPropertyDescription("Path (prefix, exact path or RE2 regular expression, depending on match)" +
+            " || required")
+    @Required
+    private String path;
+
+    @JsonPropertyDescription("How the path is matched (PREFIX, EXACT, REGEX)" +
+            " || default PREFIX")
+    @Builder.Default
+    @Pattern("(PREFIX|EXACT|REGEX)")
+    @Default("PREFIX")
+    private Match match = Match.PREFIX;
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public boolean isRegex() {
+        return match == Match.REGEX;
+    }
+
+    /**
+     * Path as single quoted YAML scalar, regular expressions may contain backslashes.
+     */
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public String getQuotedPath() {
+        return "'" + path.replace("'", "''") + "'";
+    }
+
+    /**
+     * @throws IllegalArgumentException if the path is invalid for the match type
+     */
+    public void validate() {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("bypassPaths: path must not be empty");
+        }
+        if (match == Match.REGEX) {
+            try {
+                java.util.regex.Pattern.compile(path);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("bypassPaths: invalid regex '" + path + "': " + e.getDescription());
+            }
+            String unsupported = re2Unsupported(path);
+            if (unsupported != null) {
+                throw new IllegalArgumentException("bypassPaths: regex '" + path + "' uses " + unsupported
+                        + ", which is not supported by RE2 (Envoy would reject the listener)");
+            }
+        } else if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("bypassPaths: path '" + path + "' must start with '/'");
+        }
+    }
+
+    /**
+     * The first construct of a (Java valid) regex which RE2 does not support, null if there is none:
+     * lookarounds, atomic groups, backreferences, possessive quantifiers and the \G and \Z anchors.
+     */
+    static String re2Unsupported(String regex) {
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            char next = i + 1 < regex.length() ? regex.charAt(i + 1) : 0;
+            if (c == '\\') {
+                if (next == 'Q') {
+                    // quoted until \E (or the end), nothing to check inside
+                    int end = regex.indexOf("\\E", i + 2);
+                    i = end < 0 ? regex.length() : end + 1;
+                } else if (next >= '1' && next <= '9' || next == 'k') {
+                    return "the backreference '\\" + next + "'";
+                } else if (!inClass && (next == 'G' || next == 'Z')) {
+                    return "the anchor '\\" + next + "'";
+                } else {
+                    i++;
+                }
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                inClass = true;
+                // a ']' right after '[' or '[^' is a literal
+                if (next == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == '(' && next == '?') {
+                String group = regex.substring(i + 2, Math.min(i + 4, regex.length()));
+                if (group.startsWith("=") || group.startsWith("!") || group.equals("<=") || group.equals("<!")) {
+                    return "the lookaround '(?" + (group.startsWith("<") ? group : group.substring(0, 1)) + "'";
+                } else if (group.startsWith(">")) {
+                    return "the atomic group '(?>'";
+                }
+                // skip the '?', it is no quantifier
+                i++;
+            } else if ((c == '*' || c == '+' || c == '?' || c == '}') && next == '+') {
+                return "the possessive quantifier '" + c + "+'";
+            }
+        }
+        return null;
+    }
+}
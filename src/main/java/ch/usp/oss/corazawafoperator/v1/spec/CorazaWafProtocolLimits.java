@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Max;
+import io.fabric8.generator.annotation.Min;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * HTTP protocol limits of the WAF listener, enforced by the Envoy codecs before a request reaches the Coraza filter.
+ * The defaults follow the Envoy recommendations for edge proxies.
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafProtocolLimits {
+
+    @JsonPropertyDescription("Max. size of the request headers in KB including the request line (so it also limits " +
+            "the length of the URL), larger requests are rejected with 431" +
+            " || default 60, min 1, max 8192")
+    @Builder.Default
+    @Min(1)
+    @Max(8192)
+    @Default("60")
+    private int maxRequestHeadersKb = 60;
+
+    @JsonPropertyDescription("Max. number of request headers, requests with more headers are rejected with 431" +
+            " || default 100, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("100")
+    private int maxHeadersCount = 100;
+
+    @JsonPropertyDescription("Time in seconds in which the complete request headers must be received, " +
+            "slower clients are disconnected (0 = no timeout)" +
+            " || default 10, min 0")
+    @Builder.Default
+    @Min(0)
+    @Default("10")
+    private int requestHeadersTimeoutSeconds = 10;
+
+    @JsonPropertyDescription("Time in seconds a request or response may be idle (no data sent or received) " +
+            "before it is reset (0 = no timeout)" +
+            " || default 300, min 0")
+    @Builder.Default
+    @Min(0)
+    @Default("300")
+    private int streamIdleTimeoutSeconds = 300;
+
+    @JsonPropertyDescription("Max. number of concurrent HTTP/2 streams per client connection" +
+            " || default 100, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("100")
+    private int http2MaxConcurrentStreams = 100;
+
+    @JsonPropertyDescription("HTTP/2 flow control window per stream in KB, bounds what a client can send " +
+            "before Envoy has to buffer it" +
+            " || default 64, min 64, max 2097151")
+    @Builder.Default
+    @Min(64)
+    @Max(2097151)
+    @Default("64")
+    private int http2InitialStreamWindowSizeKb = 64;
+
+    @JsonPropertyDescription("HTTP/2 flow control window per client connection in KB" +
+            " || default 1024, min 64, max 2097151")
+    @Builder.Default
+    @Min(64)
+    @Max(2097151)
+    @Default("1024")
+    private int http2InitialConnectionWindowSizeKb = 1024;
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public long getHttp2InitialStreamWindowSizeBytes() {
+        return http2InitialStreamWindowSizeKb * 1024L;
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public long getHttp2InitialConnectionWindowSizeBytes() {
+        return http2InitialConnectionWindowSizeKb * 1024L;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Min;
+import io.fabric8.generator.annotation.Pattern;
+import io.fabric8.generator.annotation.Required;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Envoy local rate limiting in front of the Coraza filter: requests exceeding the token buckets are rejected with
+ * 429 before they are inspected. The buckets are per WAF pod, the effective limit scales with the replicas.
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafRateLimit {
+
+    /** Envoy runtime keys overriding the enabled/enforced percentage */
+    public static final String ENABLED_RUNTIME_KEY = "corazawaf.ratelimit.enabled";
+    public static final String ENFORCED_RUNTIME_KEY = "corazawaf.ratelimit.enforced";
+
+    /** Descriptor keys of the path and client limits */
+    private static final String PATH_DESCRIPTOR_KEY = "path";
+    private static final String CLIENT_DESCRIPTOR_KEY = "client";
+    private static final String REMOTE_ADDRESS_DESCRIPTOR_KEY = "remote_address";
+
+    // sorted keys, so the rendered listener does not change with the iteration order of Map.of
+    private static final ObjectMapper JSON_MAPPER = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    @JsonPropertyDescription("Whether requests are rate limited at all" +
+            " || default false")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("false")
+    private boolean enabled = false;
+
+    @JsonPropertyDescription("Mode (DETECT = excess requests are only counted in the Envoy stats " +
+            "'corazawaf_ratelimit.http_local_rate_limit.rate_limited'; BLOCK = excess requests are rejected with 429)" +
+            " || default BLOCK")
+    @Builder.Default
+    @Pattern("(BLOCK|DETECT)")
+    @Default("BLOCK")
+    private CorazaWafSpec.Mode mode = CorazaWafSpec.Mode.BLOCK;
+
+    @JsonPropertyDescription("Requests per second per WAF pod over all paths and clients" +
+            " || default 1000, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("1000")
+    private int requestsPerSecond = 1000;
+
+    @JsonPropertyDescription("Requests which may exceed requestsPerSecond in a burst" +
+            " || default 0, min 0")
+    @Builder.Default
+    @Min(0)
+    @Default("0")
+    private int burst = 0;
+
+    @JsonPropertyDescription("Additional limits for paths (prefix), e.g. for expensive endpoints")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<PathLimit> paths = new LinkedList<>();
+
+    @JsonPropertyDescription("Additional limit per client, identified by its IP address or a request header")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ClientLimit client;
+
+    @Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable
+    public static class PathLimit {
+
+        @JsonPropertyDescription("Path prefix to which this limit is applied" +
+                " || required")
+        @Required
+        private String path;
+
+        @JsonPropertyDescription("Requests per second per WAF pod to this path" +
+                " || required, min 1")
+        @Required
+        @Min(1)
+        private int requestsPerSecond;
+
+        @JsonPropertyDescription("Requests which may exceed requestsPerSecond in a burst" +
+                " || default 0, min 0")
+        @Builder.Default
+        @Min(0)
+        @Default("0")
+        private int burst = 0;
+    }
+
+    @Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable
+    public static class ClientLimit {
+
+        @JsonPropertyDescription("Request header identifying the client (e.g. an API key header), " +
+                "requests without it are only subject to the other limits" +
+                " || default the client IP address (considering X-Forwarded-For as configured for the listener)")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String header;
+
+        @JsonPropertyDescription("Requests per second per WAF pod of each client" +
+                " || required, min 1")
+        @Required
+        @Min(1)
+        private int requestsPerSecond;
+
+        @JsonPropertyDescription("Requests which may exceed requestsPerSecond in a burst" +
+                " || default 0, min 0")
+        @Builder.Default
+        @Min(0)
+        @Default("0")
+        private int burst = 0;
+
+        @JsonPropertyDescription("Max. number of clients tracked per WAF pod, the least recently seen ones are " +
+                "evicted beyond it" +
+                " || default 10000, min 1")
+        @Builder.Default
+        @Min(1)
+        @Default("10000")
+        private int maxClients = 10000;
+    }
+
+    /**
+     * Route rate limit actions creating the descriptors of the path and client limits as JSON (which is valid YAML),
+     * null if there are none.
+     */
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public String getRouteRateLimitsJson() {
+        List<Map<String, Object>> rateLimits = new ArrayList<>();
+        for (PathLimit pathLimit : paths) {
+            rateLimits.add(Map.of("actions", List.of(Map.of("headerValueMatch", Map.of(
+                    "descriptorKey", PATH_DESCRIPTOR_KEY,
+                    "descriptorValue", pathLimit.getPath(),
+                    "headers", List.of(Map.of(
+                            "name", ":path",
+                            "stringMatch", Map.of("prefix", pathLimit.getPath()))))))));
+        }
+        if (client != null) {
+            Map<String, Object> action = client.getHeader() == null
+                    ? Map.of("remoteAddress", Map.of())
+                    : Map.of("requestHeaders", Map.of(
+                            "headerName", client.getHeader(),
+                            "descriptorKey", CLIENT_DESCRIPTOR_KEY,
+                            "skipIfAbsent", true));
+            rateLimits.add(Map.of("actions", List.of(action)));
+        }
+        return rateLimits.isEmpty() ? null : toJson(rateLimits);
+    }
+
+    /**
+     * Per route config of the local rate limit filter as JSON (which is valid YAML). Paths have a descriptor per
+     * prefix, clients one without value, so each distinct client gets its own bucket.
+     */
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public String getLocalRateLimitJson() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("@type", "type.googleapis.com/envoy.extensions.filters.http.local_ratelimit.v3.LocalRateLimit");
+        config.put("statPrefix", "corazawaf_ratelimit");
+        config.put("tokenBucket", tokenBucket(requestsPerSecond, burst));
+        config.put("filterEnabled", runtimePercent(100, ENABLED_RUNTIME_KEY));
+        config.put("filterEnforced", runtimePercent(mode == CorazaWafSpec.Mode.BLOCK ? 100 : 0, ENFORCED_RUNTIME_KEY));
+        List<Map<String, Object>> descriptors = new ArrayList<>();
+        for (PathLimit pathLimit : paths) {
+            descriptors.add(Map.of(
+                    "entries", List.of(Map.of("key", PATH_DESCRIPTOR_KEY, "value", pathLimit.getPath())),
+                    "tokenBucket", tokenBucket(pathLimit.getRequestsPerSecond(), pathLimit.getBurst())));
+        }
+        if (client != null) {
+            String key = client.getHeader() == null ? REMOTE_ADDRESS_DESCRIPTOR_KEY : CLIENT_DESCRIPTOR_KEY;
+            descriptors.add(Map.of(
+                    "entries", List.of(Map.of("key", key)),
+                    "tokenBucket", tokenBucket(client.getRequestsPerSecond(), client.getBurst())));
+            config.put("maxDynamicDescriptors", client.getMaxClients());
+        }
+        if (!descriptors.isEmpty()) {
+            config.put("descriptors", descriptors);
+        }
+        return toJson(config);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a path or header is invalid
+     */
+    public void validate() {
+        for (PathLimit pathLimit : paths) {
+            if (pathLimit.getPath() == null || !pathLimit.getPath().startsWith("/")) {
+                throw new IllegalArgumentException("rateLimit: path '" + pathLimit.getPath() + "' must start with '/'");
+            }
+        }
+        if (client != null && client.getHeader() != null && !client.getHeader().matches("[A-Za-z0-9!#$%&'*+.^_`|~-]+")) {
+            throw new IllegalArgumentException("rateLimit: invalid client header '" + client.getHeader() + "'");
+        }
+    }
+
+    private static Map<String, Object> tokenBucket(int requestsPerSecond, int burst) {
+        return Map.of(
+                "maxTokens", requestsPerSecond + burst,
+                "tokensPerFill", requestsPerSecond,
+                "fillInterval", "1s");
+    }
+
+    private static Map<String, Object> runtimePercent(int percent, String runtimeKey) {
+        return Map.of(
+                "defaultValue", Map.of("numerator", percent, "denominator", "HUNDRED"),
+                "runtimeKey", runtimeKey);
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return JSON_MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to render rate limit config", e);
+        }
+    }
+}
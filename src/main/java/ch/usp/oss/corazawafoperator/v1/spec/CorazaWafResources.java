@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import ch.usp.oss.corazawafoperator.v1.Utils;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Max;
+import io.fabric8.generator.annotation.Min;
+import io.fabric8.generator.annotation.Pattern;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+import java.math.BigDecimal;
+
+/**
+ * Compute resources of the Envoy/Coraza container.
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafResources {
+
+    /** Storage of the Coraza scratch volume (/tmp) which request bodies beyond the in-memory limit are spooled to */
+    public enum TmpVolumeMedium { DISK, MEMORY }
+
+    /** Share of the Envoy memory at which the overload manager considers the Envoy heap full */
+    public static final int OVERLOAD_HEAP_PERCENT = 80;
+    /** Go heap of the Coraza filter independent of the traffic (compiled rules, goroutines, GC headroom) */
+    public static final long CORAZA_BASE_HEAP_BYTES = Utils.toBytesAsLong("128Mb");
+
+    @JsonPropertyDescription("CPU request of the WAF container (e.g. '500m')" +
+            " || optional")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String cpuRequest;
+
+    @JsonPropertyDescription("CPU limit of the WAF container (e.g. '2'), also used to derive the Envoy worker concurrency" +
+            " || optional")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String cpuLimit;
+
+    @JsonPropertyDescription("Memory request of the WAF container (e.g. '512Mi'); if not set but memoryLimit is, " +
+            "it is derived from the body limits and concurrentStreams (plus the memory backed volumes), capped at " +
+            "memoryLimit" +
+            " || optional")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String memoryRequest;
+
+    @JsonPropertyDescription("Memory limit of the WAF container (e.g. '1Gi'); if set, the Envoy overload manager " +
+            "sheds load (resets the largest streams, disables keep-alive, stops accepting connections) as the Envoy " +
+            "heap approaches " + OVERLOAD_HEAP_PERCENT + "% of the share left to Envoy (the limit minus the memory " +
+            "backed volumes and the Go heap of Coraza, which is derived from the body limits and concurrentStreams " +
+            "and set as GOMEMLIMIT)" +
+            " || optional")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String memoryLimit;
+
+    @JsonPropertyDescription("Number of Envoy worker threads (--concurrency); if not set, it is derived from cpuLimit " +
+            "(or cpuRequest), rounded up" +
+            " || optional, min 1, max 128")
+    @Min(1)
+    @Max(128)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer concurrency;
+
+    @JsonPropertyDescription("Expected number of concurrently inspected streams per pod, used to derive the memory " +
+            "request (if memoryLimit is set) from requestBodyLimitKb and responseBodyLimitKb" +
+            " || default 50, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("50")
+    private int concurrentStreams = 50;
+
+    @JsonPropertyDescription("Max. number of client connections per pod, further connections are rejected by the " +
+            "Envoy overload manager" +
+            " || default 50000, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("50000")
+    private int maxConnections = 50000;
+
+    @JsonPropertyDescription("Storage of the Coraza scratch volume /tmp which large request bodies are spooled to " +
+            "(DISK = node disk; MEMORY = tmpfs, which is faster but counts against the memory of the pod)" +
+            " || default DISK")
+    @Builder.Default
+    @Pattern("(DISK|MEMORY)")
+    @Default("DISK")
+    private TmpVolumeMedium tmpVolumeMedium = TmpVolumeMedium.DISK;
+
+    @JsonPropertyDescription("Size limit of the Coraza scratch volume (e.g. '256Mi'); if not set, it is derived " +
+            "from the body limits and concurrentStreams for MEMORY and unlimited for DISK" +
+            " || optional")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String tmpVolumeSizeLimit;
+
+    /**
+     * @throws IllegalArgumentException if a quantity is invalid or a request exceeds its limit
+     */
+    public void validate() {
+        checkRequestWithinLimit("cpu", cpuRequest, cpuLimit);
+        checkRequestWithinLimit("memory", memoryRequest, memoryLimit);
+        if (tmpVolumeSizeLimit != null) {
+            Utils.quantityAmount("resources.tmpVolumeSizeLimit", tmpVolumeSizeLimit);
+        }
+    }
+
+    private static void checkRequestWithinLimit(String resource, String request, String limit) {
+        BigDecimal requestAmount = request == null ? null : Utils.quantityAmount("resources." + resource + "Request", request);
+        BigDecimal limitAmount = limit == null ? null : Utils.quantityAmount("resources." + resource + "Limit", limit);
+        if (requestAmount != null && limitAmount != null && requestAmount.compareTo(limitAmount) > 0) {
+            throw new IllegalArgumentException("resources." + resource + "Request (" + request
+                    + ") must not be greater than resources." + resource + "Limit (" + limit + ")");
+        }
+    }
+
+    /**
+     * Estimated Go heap of the Coraza filter: the base heap plus a copy of the inspected bodies of all
+     * concurrent streams.
+     */
+    public long corazaHeapBytes(long inspectedBodyBytesPerStream) {
+        return CORAZA_BASE_HEAP_BYTES + inspectedBodyBytesPerStream * concurrentStreams;
+    }
+
+    /**
+     * Max. Envoy heap size for the overload manager, null if there is no memory limit. Its fixed_heap monitor only
+     * measures the (tcmalloc) heap of Envoy, the Go heap of the Coraza filter is not included. So it is derived
+     * from the share of the limit left to Envoy, see {@link #envoyMemoryBytes}.
+     */
+    public Long overloadMaxHeapSizeBytes(long corazaHeapBytes, long memoryVolumesBytes) {
+        if (memoryLimit == null) {
+            return null;
+        }
+        return envoyMemoryBytes(corazaHeapBytes, memoryVolumesBytes) / 100 * OVERLOAD_HEAP_PERCENT;
+    }
+
+    /**
+     * Soft memory limit of the Go runtime of the Coraza filter (GOMEMLIMIT), null if there is no memory limit: the
+     * part of the limit not left to Envoy and the memory backed volumes, so the Go GC collects more aggressively
+     * before the container gets OOM killed.
+     */
+    public Long goMemoryLimitBytes(long corazaHeapBytes, long memoryVolumesBytes) {
+        if (memoryLimit == null) {
+            return null;
+        }
+        long limit = Quantity.getAmountInBytes(new Quantity(memoryLimit)).longValue();
+        return Math.max(limit - memoryVolumesBytes - envoyMemoryBytes(corazaHeapBytes, memoryVolumesBytes), limit / 10);
+    }
+
+    /**
+     * The memory limit minus the memory backed volumes (their content is charged to the container) and the Go heap
+     * of Coraza. At least a tenth of the limit is left, if the volumes and the Go heap alone exceed it.
+     */
+    private long envoyMemoryBytes(long corazaHeapBytes, long memoryVolumesBytes) {
+        long limit = Quantity.getAmountInBytes(new Quantity(memoryLimit)).longValue();
+        return Math.max(limit - memoryVolumesBytes - corazaHeapBytes, limit / 10);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Min;
+import io.fabric8.generator.annotation.Pattern;
+import io.fabric8.kubernetes.api.model.IntOrString;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Rolling updates and disruptions of the WAF pods: a terminating pod first drains its connections, so config
+ * changes and node drains do not drop in-flight requests.
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafRollout {
+
+    private static final String INT_OR_PERCENT = "^[0-9]+%?$";
+
+    @JsonPropertyDescription("Max. number of pods created above the desired replicas during a rolling update " +
+            "(number or percentage, e.g. '25%')" +
+            " || default 25%")
+    @Builder.Default
+    @Pattern(INT_OR_PERCENT)
+    @Default("25%")
+    private String maxSurge = "25%";
+
+    @JsonPropertyDescription("Max. number of pods below the desired replicas during a rolling update " +
+            "(number or percentage, e.g. '0')" +
+            " || default 0")
+    @Builder.Default
+    @Pattern(INT_OR_PERCENT)
+    @Default("0")
+    private String maxUnavailable = "0";
+
+    @JsonPropertyDescription("Seconds a terminating pod drains its listeners (HTTP/1 connections are closed after " +
+            "the current response, HTTP/2 ones get a GOAWAY) while in-flight requests complete and the pod is " +
+            "removed from the Service endpoints (0 = no drain)" +
+            " || default 15, min 0")
+    @Builder.Default
+    @Min(0)
+    @Default("15")
+    private int drainSeconds = 15;
+
+    @JsonPropertyDescription("Seconds a terminating pod is given in total before it is killed, " +
+            "must be greater than drainSeconds" +
+            " || default 45, min 1")
+    @Builder.Default
+    @Min(1)
+    @Default("45")
+    private int terminationGracePeriodSeconds = 45;
+
+    @JsonPropertyDescription("Whether to manage a PodDisruptionBudget for the WAF pods, " +
+            "so node drains evict them one after the other" +
+            " || default true")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("true")
+    private boolean podDisruptionBudget = true;
+
+    @JsonPropertyDescription("Max. number of WAF pods which may be unavailable due to voluntary disruptions " +
+            "(number or percentage)" +
+            " || default 1")
+    @Builder.Default
+    @Pattern(INT_OR_PERCENT)
+    @Default("1")
+    private String podDisruptionBudgetMaxUnavailable = "1";
+
+    /**
+     * Number or percentage as IntOrString, a number given as string would be rejected by the API server.
+     */
+    public static IntOrString intOrPercent(String value) {
+        return value.endsWith("%") ? new IntOrString(value) : new IntOrString(Integer.parseInt(value));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the pods could not be replaced or would be killed while draining
+     */
+    public void validate() {
+        if (isZero(maxSurge) && isZero(maxUnavailable)) {
+            throw new IllegalArgumentException("rollout: maxSurge and maxUnavailable must not both be 0");
+        }
+        if (terminationGracePeriodSeconds <= drainSeconds) {
+            throw new IllegalArgumentException("rollout: terminationGracePeriodSeconds (" + terminationGracePeriodSeconds
+                    + ") must be greater than drainSeconds (" + drainSeconds + ")");
+        }
+    }
+
+    private static boolean isZero(String intOrPercent) {
+        return Integer.parseInt(intOrPercent.replace("%", "")) == 0;
+    }
+}
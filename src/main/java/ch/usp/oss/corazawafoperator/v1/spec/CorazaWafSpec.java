@@ -18,6 +18,11 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.jackson.Jacksonized;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
 
 @Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
 public class CorazaWafSpec {
@@ -26,6 +31,20 @@ public class CorazaWafSpec {
     private static final long REQ_BODY_LIMIT_MAX = Utils.toBytesAsLong("1Gb");
     private static final long RESP_BODY_LIMIT_MAX = Utils.toBytesAsLong("1Gb");
 
+    // Envoy defaults and the headroom on top of the inspected body, so Coraza always sees the whole limit
+    private static final long DEFAULT_BUFFER_LIMIT = Utils.toBytesAsLong("1Mb");
+    private static final long BUFFER_LIMIT_HEADROOM = Utils.toBytesAsLong("64Kb");
+    // an explicit request buffer limit above this factor times the inspected body is considered a mistake
+    private static final long BUFFER_LIMIT_MAX_FACTOR = 4;
+
+    /** Textual types of error pages and API responses, the only ones the CRS response rule sets look into */
+    public static final List<String> DEFAULT_RESPONSE_BODY_MIME_TYPES =
+            List.of("text/plain", "text/html", "text/xml", "application/json", "application/xml");
+    private static final java.util.regex.Pattern MIME_TYPE_PATTERN = java.util.regex.Pattern.compile("^[A-Za-z0-9!#$&^_.+-]+/[A-Za-z0-9!#$&^_.+-]+$");
+    private static final java.util.regex.Pattern TEXTUAL_MIME_TYPE_PATTERN = java.util.regex.Pattern.compile("^(text/.*|.*[/+](json|xml|javascript))$");
+
+    private static final java.util.regex.Pattern HOST_PATTERN = java.util.regex.Pattern.compile("^(\\*|(\\*\\.?)?[A-Za-z0-9.-]+(:\\d+)?)$");
+
     /** Mode used both for CRS and GraphQL */
     public enum Mode { DETECT, BLOCK }
 
@@ -37,6 +56,72 @@ public class CorazaWafSpec {
     @Required
     private CorazaWafBackend backend;
 
+    @JsonPropertyDescription("Host names (domains) served by this WAF, optionally with port or leading '*' wildcard; " +
+            "must be set to explicit host names if the CR is served by a shared gateway " +
+            "(label oss.u-s-p.ch/gateway)" +
+            " || default all hosts")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> hosts = new LinkedList<>();
+
+    @JsonPropertyDescription("Paths which are routed to the backend without WAF inspection " +
+            "(e.g. static assets, health checks, large downloads), evaluated in the given order. With bypass paths " +
+            "the request paths are normalized ('..', '//') and requests with escaped slashes are redirected to the " +
+            "unescaped path, so a bypass path cannot be used to reach other paths uninspected")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<CorazaWafBypassPath> bypassPaths = new LinkedList<>();
+
+    @JsonPropertyDescription("Rate limiting of the requests before they are inspected by Coraza " +
+            "(bypassPaths are not limited; for members of a shared gateway the limits apply to the requests of " +
+            "their hosts, counted per gateway pod)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private CorazaWafRateLimit rateLimit = new CorazaWafRateLimit();
+
+    @JsonPropertyDescription("HTTP protocol limits of the WAF listener " +
+            "(ignored for members of a shared gateway, the limits of the gateway apply)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private CorazaWafProtocolLimits protocolLimits = new CorazaWafProtocolLimits();
+
+    @JsonPropertyDescription("Number of WAF pods (ignored if autoscaling is enabled or for members of a shared gateway)" +
+            " || default 1, min 0")
+    @Builder.Default
+    @Min(0)
+    @Default("1")
+    private int replicas = 1;
+
+    @JsonPropertyDescription("Rolling updates, connection draining and disruption budget of the WAF pods" +
+            " (ignored for members of a shared gateway, the one of the gateway applies)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private CorazaWafRollout rollout = new CorazaWafRollout();
+
+    @JsonPropertyDescription("Horizontal autoscaling of the WAF pods" +
+            " (ignored for members of a shared gateway, the one of the gateway applies)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private CorazaWafAutoscaling autoscaling = new CorazaWafAutoscaling();
+
+    @JsonPropertyDescription("Compute resources and Envoy worker concurrency of the WAF pods" +
+            " (ignored for members of a shared gateway, the one of the gateway applies)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private CorazaWafResources resources = new CorazaWafResources();
+
+    @JsonPropertyDescription("Access log of the WAF listener" +
+            " (ignored for members of a shared gateway, the one of the gateway applies)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private CorazaWafAccessLog accessLog = new CorazaWafAccessLog();
+
+    @JsonPropertyDescription("Data plane telemetry of the WAF pods" +
+            " (ignored for members of a shared gateway, the one of the gateway applies)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private CorazaWafTelemetry telemetry = new CorazaWafTelemetry();
+
     @JsonPropertyDescription("Whether to scan request bodies or not, " +
             "must be true if GraphQL is enabled on any route " +
             "(if this setting is disabled, POST parameters and other content submitted in the request body will not be inspected)" +
@@ -47,7 +132,7 @@ public class CorazaWafSpec {
     private boolean requestBodyAccess = true;
 
     @JsonPropertyDescription("Request body limit in KB, body bytes beyond the limit are not parsed " +
-            "(also make sure that operation.bufferLimitBytes is set accordingly)" +
+            "(the Envoy requestBufferLimitBytes is derived from it unless set explicitly)" +
             " || default 128, min 0, max 1048576")
     @Builder.Default
     @Min(0)
@@ -79,7 +164,7 @@ public class CorazaWafSpec {
     private boolean responseBodyAccess = false;
 
     @JsonPropertyDescription("Response body limit in KB, body bytes beyond the limit are not parsed" +
-            "(also make sure that operation.bufferLimitBytes is set accordingly)" +
+            "(the Envoy requestBufferLimitBytes is derived from it unless set explicitly)" +
             " || default 256, min 0, max 1048576")
     @Builder.Default
     @Min(0)
@@ -93,6 +178,15 @@ public class CorazaWafSpec {
         return Math.min(responseBodyLimitKb * 1024L, RESP_BODY_LIMIT_MAX);
     }
 
+    /**
+     * Body bytes Coraza buffers per inspected stream (request and response body, if inspected).
+     */
+    @JsonIgnore
+    public long getInspectedBodyBytesPerStream() {
+        return (requestBodyAccess ? getRequestBodyLimitBytes() : 0L)
+                + (responseBodyAccess ? getResponseBodyLimitBytes() : 0L);
+    }
+
     @JsonPropertyDescription("How to handle responses with a larger body than specified in coraza.responseBodyLimitKb" +
             " (ProcessPartial = validate response body up to limit, let additional bytes through unchecked;" +
             " Reject = reject response if body is larger than limit)" +
@@ -102,6 +196,71 @@ public class CorazaWafSpec {
     @Default("Reject")
     private BodyLimitAction responseBodyLimitAction =  BodyLimitAction.Reject;
 
+    @JsonPropertyDescription("MIME types of the response bodies to scan (SecResponseBodyMimeType), " +
+            "responses of other types (images, fonts, downloads) are passed without buffering" +
+            " || default text/plain, text/html, text/xml, application/json, application/xml")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> responseBodyMimeTypes = new LinkedList<>(DEFAULT_RESPONSE_BODY_MIME_TYPES);
+
+    @JsonPropertyDescription("HTTP status codes of the responses whose bodies are scanned, " +
+            "e.g. [200, 500] to skip redirects and client errors" +
+            " || default all status codes")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<Integer> responseBodyStatusCodes = new LinkedList<>();
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public String getResponseBodyMimeTypesString() {
+        return String.join(" ", responseBodyMimeTypes);
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public String getResponseBodyStatusCodesString() {
+        return responseBodyStatusCodes.stream().map(String::valueOf).collect(Collectors.joining(" "));
+    }
+
+    @JsonPropertyDescription("Envoy per connection buffer limit in bytes of the listener" +
+            " || default 1048576, min 32768")
+    @Min(32768)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long connectionBufferLimitBytes;
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public long getEffectiveConnectionBufferLimitBytes() {
+        return connectionBufferLimitBytes != null ? connectionBufferLimitBytes : DEFAULT_BUFFER_LIMIT;
+    }
+
+    @JsonPropertyDescription("Envoy per request buffer limit in bytes of the route, requests or responses buffered " +
+            "beyond it are answered with 413 resp. 500 by Envoy; must be at least the inspected request/response " +
+            "body limit and not more than " + BUFFER_LIMIT_MAX_FACTOR + " times of it " +
+            "(default is derived from requestBodyLimitKb and responseBodyLimitKb)" +
+            " || optional, min 32768")
+    @Min(32768)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long requestBufferLimitBytes;
+
+    /**
+     * Largest body Coraza inspects, either request or response.
+     */
+    @JsonIgnore
+    public long getInspectedBodyLimitBytes() {
+        return Math.max(requestBodyAccess ? getRequestBodyLimitBytes() : 0L,
+                responseBodyAccess ? getResponseBodyLimitBytes() : 0L);
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public long getEffectiveRequestBufferLimitBytes() {
+        if (requestBufferLimitBytes != null) {
+            return requestBufferLimitBytes;
+        }
+        return Math.max(DEFAULT_BUFFER_LIMIT, getInspectedBodyLimitBytes() + BUFFER_LIMIT_HEADROOM);
+    }
+
     @JsonPropertyDescription("Whether to apply CRS protection rules for JSON payloads or not; " +
             "must be true if GraphQL is enabled on any route" +
             " || default true")
@@ -125,4 +284,62 @@ public class CorazaWafSpec {
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
     private CorazaWafCrs crs = new CorazaWafCrs();
 
+    /**
+     * Validates combinations of settings which can not be expressed in the CRD schema.
+     *
+     * @throws IllegalArgumentException if the spec is invalid
+     */
+    public void validate() {
+        for (String host : hosts) {
+            if (!HOST_PATTERN.matcher(host).matches()) {
+                throw new IllegalArgumentException("invalid host '" + host + "'");
+            }
+        }
+        bypassPaths.forEach(CorazaWafBypassPath::validate);
+        rateLimit.validate();
+        rollout.validate();
+        resources.validate();
+        autoscaling.validate(resources);
+        accessLog.validate();
+        crs.validate();
+        for (String mimeType : responseBodyMimeTypes) {
+            if (!MIME_TYPE_PATTERN.matcher(mimeType).matches()) {
+                throw new IllegalArgumentException("invalid response body MIME type '" + mimeType + "'");
+            }
+        }
+        for (int statusCode : responseBodyStatusCodes) {
+            if (statusCode < 100 || statusCode > 599) {
+                throw new IllegalArgumentException("invalid response body status code " + statusCode);
+            }
+        }
+        long inspected = getInspectedBodyLimitBytes();
+        if (requestBufferLimitBytes != null) {
+            if (requestBufferLimitBytes < inspected) {
+                throw new IllegalArgumentException("requestBufferLimitBytes (" + requestBufferLimitBytes
+                        + ") is smaller than the inspected body limit (" + inspected
+                        + "), Envoy would reject bodies before Coraza inspected them");
+            }
+            if (requestBufferLimitBytes > BUFFER_LIMIT_MAX_FACTOR * Math.max(inspected, DEFAULT_BUFFER_LIMIT)) {
+                throw new IllegalArgumentException("requestBufferLimitBytes (" + requestBufferLimitBytes
+                        + ") is more than " + BUFFER_LIMIT_MAX_FACTOR + " times the inspected body limit ("
+                        + inspected + "), Envoy would buffer far more than Coraza inspects");
+            }
+        }
+    }
+
+    /**
+     * Warnings about settings which are valid but most likely not intended, see {@link CorazaWafCrs#ruleExceptionWarnings()}.
+     */
+    public List<String> warnings() {
+        List<String> warnings = new ArrayList<>(crs.ruleExceptionWarnings());
+        if (!crs.getEnabledResponseRules().isEmpty()) {
+            if (!responseBodyAccess) {
+                warnings.add("Response rule sets are enabled but responseBodyAccess is false, they never match");
+            } else if (responseBodyMimeTypes.stream().noneMatch(type -> TEXTUAL_MIME_TYPE_PATTERN.matcher(type.toLowerCase()).matches())) {
+                warnings.add("Response rule sets are enabled but none of the responseBodyMimeTypes "
+                        + responseBodyMimeTypes + " is textual, they never match");
+            }
+        }
+        return warnings;
+    }
 }
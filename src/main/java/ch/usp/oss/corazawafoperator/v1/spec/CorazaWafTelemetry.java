@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Min;
+import io.fabric8.generator.annotation.Pattern;
+import io.quarkus.qute.TemplateData;
+import jakarta.json.bind.annotation.JsonbNillable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Data plane telemetry of the WAF pods (Envoy admin /stats).
+ */
+@Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @JsonbNillable @TemplateData
+public class CorazaWafTelemetry {
+
+    @JsonPropertyDescription("Whether the operator periodically scrapes /stats of the WAF pods and reports " +
+            "latency, throughput, blocked requests and upstream errors in status.dataPlane " +
+            "(the operator needs network access to the Envoy admin port of the pods)" +
+            " || default false")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("false")
+    private boolean statusEnabled = false;
+
+    @JsonPropertyDescription("Interval in seconds between two scrapes of the WAF pods" +
+            " || default 60, min 10")
+    @Builder.Default
+    @Min(10)
+    @Default("60")
+    private int scrapeIntervalSeconds = 60;
+
+    @JsonPropertyDescription("Whether a Service for the Prometheus metrics of the Envoy pods is created " +
+            "(/stats/prometheus on port 9902, the rest of the Envoy admin API is not exposed)" +
+            " || default false")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("false")
+    private boolean metricsService = false;
+
+    @JsonPropertyDescription("Whether a Prometheus Operator ServiceMonitor for the metrics Service is created " +
+            "(implies metricsService, requires the monitoring.coreos.com CRDs)" +
+            " || default false")
+    @Builder.Default
+    @Pattern("true|false")
+    @Default("false")
+    private boolean serviceMonitor = false;
+
+    @JsonIgnore
+    public boolean isMetricsServiceEnabled() {
+        return metricsService || serviceMonitor;
+    }
+}
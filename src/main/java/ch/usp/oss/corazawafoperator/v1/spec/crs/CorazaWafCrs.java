@@ -4,11 +4,14 @@
 package ch.usp.oss.corazawafoperator.v1.spec.crs;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafSpec;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -42,6 +45,14 @@ public class CorazaWafCrs {
 	public static final Set<RequestRuleSet> DEFAULT_REQUEST_RULE_SETS =
 			Arrays.stream(RequestRuleSet.values()).collect(Collectors.toCollection(TreeSet::new));
 
+    /**
+     * The runtime rules of the path settings get the IDs 110000 (allowed methods), 120000 (content types) and
+     * 130000 (rule set removals) + index, the rule exceptions 200000 (request) and 250000 (response) + index.
+     * Coraza refuses duplicate IDs, so the ranges must not overlap.
+     */
+    public static final int MAX_PATH_SETTINGS = 10000;
+    public static final int MAX_RULE_EXCEPTIONS = 50000;
+
     @JsonIgnore
     public String getCrsVersion() {
         return CRS_VERSION;
@@ -108,7 +119,8 @@ public class CorazaWafCrs {
 	@JsonDeserialize(as=TreeSet.class)
 	private Set<RequestRuleSet> enabledRequestRules = DEFAULT_REQUEST_RULE_SETS;
 
-	@JsonPropertyDescription("Conditionally disable request rules to avoid false positive alerts/blocks")
+	@JsonPropertyDescription("Conditionally disable request rules to avoid false positive alerts/blocks" +
+			" || max. " + MAX_RULE_EXCEPTIONS)
 	@Builder.Default
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
 	private List<CorazaWafCrsRequestRuleException> requestRuleExceptions = new LinkedList<>();
@@ -122,12 +134,107 @@ public class CorazaWafCrs {
 	@JsonDeserialize(as=TreeSet.class)
 	private Set<ResponseRuleSet> enabledResponseRules = new TreeSet<>();
 
-	@JsonPropertyDescription("Conditionally disable response rules to avoid false positive alerts/blocks")
+	@JsonPropertyDescription("Conditionally disable response rules to avoid false positive alerts/blocks" +
+			" || max. " + MAX_RULE_EXCEPTIONS)
 	@Builder.Default
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
 	private List<CorazaWafCrsResponseRuleException> responseRuleExceptions = new LinkedList<>();
 
-    @JsonPropertyDescription("Path specific settings for allowed Method or Content-Types, etc.")
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public List<CorazaWafCrsRuleExceptions.CompiledRuleException> getCompiledRequestRuleExceptions() {
+        return CorazaWafCrsRuleExceptions.compile(requestRuleExceptions, this::isRuleActive);
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public List<CorazaWafCrsRuleExceptions.CompiledRuleException> getCompiledResponseRuleExceptions() {
+        return CorazaWafCrsRuleExceptions.compile(responseRuleExceptions, this::isRuleActive);
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public List<CorazaWafCrsRuleExceptions.StaticRuleException> getStaticRuleExceptions() {
+        return Stream.concat(
+                        CorazaWafCrsRuleExceptions.staticExceptions(requestRuleExceptions, this::isRuleActive).stream(),
+                        CorazaWafCrsRuleExceptions.staticExceptions(responseRuleExceptions, this::isRuleActive).stream())
+                .toList();
+    }
+
+    /**
+     * Runtime rules skipping the rule sets disabled by the path settings, as ID range removal of all the rules of
+     * the rule set file. Rule sets which are not enabled anyway are left out.
+     */
+    @JsonIgnore
+    @SuppressWarnings("unused")
+    public List<CorazaWafCrsRuleExceptions.CompiledRuleException> getCompiledPathRuleSetRemovals() {
+        Map<String, Set<String>> actionsByPath = new LinkedHashMap<>();
+        for (CorazaWafPathSettings settings : pathSettings) {
+            Set<String> actions = actionsByPath.computeIfAbsent(settings.getPath(), p -> new TreeSet<>());
+            settings.getDisabledRequestRuleSets().stream()
+                    .filter(enabledRequestRules::contains)
+                    .forEach(ruleSet -> actions.add(ruleSetRemoval(ruleSet.getNumber())));
+            settings.getDisabledResponseRuleSets().stream()
+                    .filter(enabledResponseRules::contains)
+                    .forEach(ruleSet -> actions.add(ruleSetRemoval(ruleSet.getNumber())));
+        }
+        return CorazaWafCrsRuleExceptions.compile(actionsByPath);
+    }
+
+    private static String ruleSetRemoval(int ruleSetNumber) {
+        return "ctl:ruleRemoveById=" + ruleSetNumber * 1000 + "-" + (ruleSetNumber * 1000 + 999);
+    }
+
+    private boolean isRuleActive(int ruleId) {
+        return CrsRuleIndex.get().isActive(ruleId, this);
+    }
+
+    /**
+     * Warnings about rule IDs of exceptions which are not part of the CRS and path settings disabling rule sets
+     * which are not enabled.
+     */
+    public List<String> ruleExceptionWarnings() {
+        CrsRuleIndex index = CrsRuleIndex.get();
+        Stream<String> unknownRules = Stream.concat(requestRuleExceptions.stream(), responseRuleExceptions.stream())
+                .flatMap(exception -> exception.getRuleIds().stream())
+                .filter(ruleId -> !index.isKnown(ruleId))
+                .distinct()
+                .map(ruleId -> "Rule exception for unknown CRS " + CRS_VERSION + " rule ID " + ruleId);
+        Stream<String> disabledRuleSets = pathSettings.stream()
+                .flatMap(settings -> Stream.concat(
+                        settings.getDisabledRequestRuleSets().stream()
+                                .filter(ruleSet -> !enabledRequestRules.contains(ruleSet))
+                                .map(RequestRuleSet::getRuleSetName),
+                        settings.getDisabledResponseRuleSets().stream()
+                                .filter(ruleSet -> !enabledResponseRules.contains(ruleSet))
+                                .map(ResponseRuleSet::getRuleSetName))
+                        .map(ruleSet -> "Path settings for " + settings.getPath() + " disable rule set " + ruleSet
+                                + " which is not enabled"));
+        return Stream.concat(unknownRules, disabledRuleSets).toList();
+    }
+
+    /**
+     * Validates that the rule IDs of the path settings and rule exceptions stay within their ranges.
+     *
+     * @throws IllegalArgumentException if there are too many of them
+     */
+    public void validate() {
+        if (pathSettings.size() > MAX_PATH_SETTINGS) {
+            throw new IllegalArgumentException("too many pathSettings (" + pathSettings.size() + "), max. "
+                    + MAX_PATH_SETTINGS);
+        }
+        if (requestRuleExceptions.size() > MAX_RULE_EXCEPTIONS) {
+            throw new IllegalArgumentException("too many requestRuleExceptions (" + requestRuleExceptions.size()
+                    + "), max. " + MAX_RULE_EXCEPTIONS);
+        }
+        if (responseRuleExceptions.size() > MAX_RULE_EXCEPTIONS) {
+            throw new IllegalArgumentException("too many responseRuleExceptions (" + responseRuleExceptions.size()
+                    + "), max. " + MAX_RULE_EXCEPTIONS);
+        }
+    }
+
+    @JsonPropertyDescription("Path specific settings for allowed Method or Content-Types, disabled rule sets, etc." +
+            " || max. " + MAX_PATH_SETTINGS)
     @Builder.Default
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
     private List<CorazaWafPathSettings> pathSettings = new LinkedList<>();
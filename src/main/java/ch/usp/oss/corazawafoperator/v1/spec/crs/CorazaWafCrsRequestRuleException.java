@@ -21,7 +21,7 @@ import lombok.extern.jackson.Jacksonized;
  * Coraza WAF CRS request rule exception.
  */
 @Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @TemplateData
-public class CorazaWafCrsRequestRuleException {
+public class CorazaWafCrsRequestRuleException implements CorazaWafCrsRuleException {
 
 	@JsonPropertyDescription("A list of Rule IDs" +
 			" || required")
@@ -35,26 +35,32 @@ public class CorazaWafCrsRequestRuleException {
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
 	private String requestPartName;
 
-	@JsonPropertyDescription("Path to which this exception is applied.")
+	@JsonPropertyDescription("Path prefix to which this exception is applied (all paths if empty or '/')")
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
 	private String path;
 
     @JsonIgnore
     @SuppressWarnings("unused")
     public String getExceptionRuleAction() {
-        return ruleIds.stream()
-                .map(ruleId -> {
-                    if (requestPartType == null) {
-                        return "ctl:ruleRemoveById=" + ruleId;
-                    } else {
-                        StringBuilder sb = new StringBuilder();
-                        sb.append("ctl:ruleRemoveTargetById=").append(ruleId).append(";").append(requestPartType);
-                        if (requestPartName != null) {
-                            sb.append(":").append(requestPartName);
-                        }
-                        return sb.toString();
-                    }
-                })
-                .collect(Collectors.joining(","));
+        return ruleIds.stream().map(this::getExceptionRuleAction).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public String getExceptionRuleAction(int ruleId) {
+        if (requestPartType == null) {
+            return "ctl:ruleRemoveById=" + ruleId;
+        }
+        return "ctl:ruleRemoveTargetById=" + ruleId + ";" + getTarget();
+    }
+
+    @Override
+    public CorazaWafCrsRuleExceptions.StaticRuleException getStaticRuleException(int ruleId) {
+        return requestPartType == null
+                ? CorazaWafCrsRuleExceptions.StaticRuleException.remove(ruleId)
+                : CorazaWafCrsRuleExceptions.StaticRuleException.removeTarget(ruleId, getTarget());
+    }
+
+    private String getTarget() {
+        return requestPartName == null ? requestPartType : requestPartType + ":" + requestPartName;
     }
 }
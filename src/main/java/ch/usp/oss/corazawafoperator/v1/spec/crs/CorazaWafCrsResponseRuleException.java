@@ -19,7 +19,7 @@ import java.util.stream.Collectors;
  */
 @Jacksonized @Builder @Data @NoArgsConstructor @AllArgsConstructor @TemplateData
 @SuppressWarnings("java:S2166")
-public class CorazaWafCrsResponseRuleException {
+public class CorazaWafCrsResponseRuleException implements CorazaWafCrsRuleException {
 
 	@JsonPropertyDescription("A list of Rule IDs" +
 			" || required")
@@ -29,12 +29,20 @@ public class CorazaWafCrsResponseRuleException {
     @JsonIgnore
     @SuppressWarnings("unused")
     public String getExceptionRuleAction() {
-        return ruleIds.stream()
-                .map(ruleId -> "ctl:ruleRemoveById=" + ruleId)
-                .collect(Collectors.joining(","));
+        return ruleIds.stream().map(this::getExceptionRuleAction).collect(Collectors.joining(","));
     }
 
-	@JsonPropertyDescription("Path")
+    @Override
+    public String getExceptionRuleAction(int ruleId) {
+        return "ctl:ruleRemoveById=" + ruleId;
+    }
+
+    @Override
+    public CorazaWafCrsRuleExceptions.StaticRuleException getStaticRuleException(int ruleId) {
+        return CorazaWafCrsRuleExceptions.StaticRuleException.remove(ruleId);
+    }
+
+	@JsonPropertyDescription("Path prefix to which this exception is applied (all paths if empty or '/')")
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
 	private String path;
 }
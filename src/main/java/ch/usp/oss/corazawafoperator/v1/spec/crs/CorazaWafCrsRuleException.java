@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec.crs;
+
+import java.util.List;
+
+/**
+ * Common view of request and response rule exceptions: the ctl actions to execute for requests to a path.
+ */
+public interface CorazaWafCrsRuleException {
+
+    String getPath();
+
+    List<Integer> getRuleIds();
+
+    /**
+     * The ctl action removing the given rule (or some of its targets) for the current request.
+     */
+    String getExceptionRuleAction(int ruleId);
+
+    /**
+     * The startup time equivalent of {@link #getExceptionRuleAction(int)}, used if the exception applies to all paths.
+     */
+    CorazaWafCrsRuleExceptions.StaticRuleException getStaticRuleException(int ruleId);
+}
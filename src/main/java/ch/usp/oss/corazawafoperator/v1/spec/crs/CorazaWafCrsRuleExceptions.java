@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec.crs;
+
+import io.quarkus.qute.TemplateData;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles rule exceptions into as few runtime SecRules as possible, each one is evaluated on every request:
+ * <ul>
+ *     <li>exceptions for the same path are merged into one rule executing all their ctl actions</li>
+ *     <li>paths with the same set of ctl actions share one rule with an anchored regex of all the paths</li>
+ * </ul>
+ * The result is equivalent to one rule per exception: every prefix matching the request path still executes
+ * its actions, only the number of operator evaluations is reduced.
+ * <p>
+ * Exceptions without a path (or "/") apply to every request, they are not compiled into runtime rules but
+ * resolved once when Coraza loads the rules ({@link #staticExceptions}).
+ */
+public final class CorazaWafCrsRuleExceptions {
+
+    /** Characters quoted as single character class in the path regex */
+    private static final Pattern REGEX_META = Pattern.compile("([.+*?(){}|$])");
+    /** Paths which cannot be quoted without a backslash (which would have to be escaped for JSON) keep their own rule */
+    private static final Pattern UNQUOTABLE = Pattern.compile("[\\[\\]\\\\^\"]");
+
+    private CorazaWafCrsRuleExceptions() {
+    }
+
+    /**
+     * A runtime exception rule: the operator on REQUEST_FILENAME and the ctl actions to execute on a match.
+     */
+    @TemplateData
+    public record CompiledRuleException(String operator, String actions) {
+    }
+
+    /**
+     * A startup time exception: SecRuleRemoveById or, with a target, SecRuleUpdateTargetById removing it.
+     */
+    @TemplateData
+    public record StaticRuleException(String directive, int ruleId, String target) {
+
+        public static StaticRuleException remove(int ruleId) {
+            return new StaticRuleException("SecRuleRemoveById", ruleId, null);
+        }
+
+        public static StaticRuleException removeTarget(int ruleId, String target) {
+            return new StaticRuleException("SecRuleUpdateTargetById", ruleId, "!" + target);
+        }
+    }
+
+    public static boolean isPathIndependent(CorazaWafCrsRuleException exception) {
+        String path = exception.getPath();
+        return path == null || path.isBlank() || path.equals("/");
+    }
+
+    /**
+     * The distinct startup time directives of all path independent exceptions, they must be placed after the
+     * rules they modify.
+     */
+    public static List<StaticRuleException> staticExceptions(List<? extends CorazaWafCrsRuleException> exceptions,
+                                                             IntPredicate active) {
+        return exceptions.stream()
+                .filter(CorazaWafCrsRuleExceptions::isPathIndependent)
+                .flatMap(exception -> exception.getRuleIds().stream()
+                        .filter(active::test)
+                        .map(exception::getStaticRuleException))
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Compiles the exceptions for the given rule IDs, exceptions of rules which cannot be executed
+     * (see {@link CrsRuleIndex#isActive}) are dropped.
+     */
+    public static List<CompiledRuleException> compile(List<? extends CorazaWafCrsRuleException> exceptions,
+                                                      IntPredicate active) {
+        // path -> distinct actions, paths in order of their first appearance
+        Map<String, Set<String>> actionsByPath = new LinkedHashMap<>();
+        for (CorazaWafCrsRuleException exception : exceptions) {
+            if (isPathIndependent(exception)) {
+                continue;
+            }
+            Set<String> actions = actionsByPath.computeIfAbsent(exception.getPath(), p -> new TreeSet<>());
+            for (int ruleId : exception.getRuleIds()) {
+                if (active.test(ruleId)) {
+                    actions.add(exception.getExceptionRuleAction(ruleId));
+                }
+            }
+        }
+        return compile(actionsByPath);
+    }
+
+    /**
+     * Compiles the ctl actions by path (in the order of the map) into rules, see {@link #compile(List, IntPredicate)}.
+     */
+    public static List<CompiledRuleException> compile(Map<String, Set<String>> actionsByPath) {
+        // action set -> paths
+        Map<Set<String>, List<String>> pathsByActions = new LinkedHashMap<>();
+        List<CompiledRuleException> compiled = new ArrayList<>();
+        actionsByPath.forEach((path, actions) -> {
+            if (actions.isEmpty()) {
+                return;
+            }
+            if (UNQUOTABLE.matcher(path).find()) {
+                compiled.add(new CompiledRuleException("@beginsWith " + path, String.join(",", actions)));
+            } else {
+                pathsByActions.computeIfAbsent(actions, a -> new ArrayList<>()).add(path);
+            }
+        });
+        pathsByActions.forEach((actions, paths) -> compiled.add(
+                new CompiledRuleException(operator(paths), String.join(",", actions))));
+        return compiled;
+    }
+
+    private static String operator(List<String> paths) {
+        if (paths.size() == 1) {
+            return "@beginsWith " + paths.get(0);
+        }
+        StringBuilder regex = new StringBuilder("@rx ^(?:");
+        for (int i = 0; i < paths.size(); i++) {
+            if (i > 0) {
+                regex.append('|');
+            }
+            regex.append(REGEX_META.matcher(paths.get(i)).replaceAll("[$1]"));
+        }
+        return regex.append(')').toString();
+    }
+}
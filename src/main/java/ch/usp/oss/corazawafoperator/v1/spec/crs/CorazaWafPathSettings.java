@@ -65,6 +65,20 @@ public class CorazaWafPathSettings {
     @JsonDeserialize(as=TreeSet.class)
     private Set<HttpMethod> allowedMethods = new TreeSet<>();
 
+    @JsonPropertyDescription("Request rule sets which are skipped for this Path, e.g. REQUEST_942_APPLICATION_ATTACK_SQLI " +
+            "for an upload endpoint (only has an effect on enabled rule sets)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @JsonDeserialize(as=TreeSet.class)
+    private Set<RequestRuleSet> disabledRequestRuleSets = new TreeSet<>();
+
+    @JsonPropertyDescription("Response rule sets which are skipped for this Path " +
+            "(only has an effect on enabled rule sets)")
+    @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @JsonDeserialize(as=TreeSet.class)
+    private Set<ResponseRuleSet> disabledResponseRuleSets = new TreeSet<>();
+
     @JsonIgnore
     @SuppressWarnings("unused")
     public String getAllowedMethodsString() {
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec.crs;
+
+import lombok.extern.jbosslog.JBossLog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Index of the rules of {@link CorazaWafCrs#CRS_VERSION}: rule ID, phase, paranoia level and tags.
+ * <p>
+ * The index is generated from the CRS rule files by {@code ch.usp.oss.corazawafoperator.tools.GenerateCrsRuleIndex}
+ * into src/main/resources/{@value #RESOURCE_PREFIX}&lt;version&gt;.tsv and committed (build profile
+ * crs-rule-index). Without an index for the version only the CRS convention is used that the first three digits of a rule ID are the number of its rule file,
+ * so exceptions of disabled rule sets are still recognized, but not those above the paranoia level.
+ */
+@JBossLog
+public final class CrsRuleIndex {
+
+    public static final String RESOURCE_PREFIX = "crs/rule-index-";
+
+    /** Rule files which are always included, see lds.yaml */
+    private static final Set<Integer> ALWAYS_INCLUDED = Set.of(901, 949, 959, 980);
+
+    private static final CrsRuleIndex INSTANCE = load(CorazaWafCrs.CRS_VERSION);
+
+    /**
+     * A rule of the CRS, a paranoia level of 1 also applies to the control rules without paranoia-level tag.
+     */
+    public record Rule(int id, int phase, int paranoiaLevel, List<String> tags) {
+    }
+
+    private final Map<Integer, Rule> rules;
+
+    private CrsRuleIndex(Map<Integer, Rule> rules) {
+        this.rules = rules;
+    }
+
+    public static CrsRuleIndex get() {
+        return INSTANCE;
+    }
+
+    public boolean isLoaded() {
+        return !rules.isEmpty();
+    }
+
+    public Optional<Rule> rule(int ruleId) {
+        return Optional.ofNullable(rules.get(ruleId));
+    }
+
+    /**
+     * Number of the rule file of a CRS rule ID, e.g. 942 for REQUEST-942-APPLICATION-ATTACK-SQLI.
+     */
+    public static int ruleSetNumber(int ruleId) {
+        return ruleId / 1000;
+    }
+
+    /**
+     * Whether the rule is part of the CRS (if the index is not available, whether it is in the ID range of a CRS
+     * rule file).
+     */
+    public boolean isKnown(int ruleId) {
+        if (isLoaded()) {
+            return rules.containsKey(ruleId);
+        }
+        int ruleSet = ruleSetNumber(ruleId);
+        return ruleId >= 100000 && ruleId <= 999999 && (ALWAYS_INCLUDED.contains(ruleSet)
+                || RequestRuleSet.get(ruleSet) != null || ResponseRuleSet.get(ruleSet) != null);
+    }
+
+    /**
+     * Whether the rule can be executed with the given CRS settings: its rule set is included and it is not above
+     * the detection paranoia level. Unknown rules are considered active, they might be from a plugin.
+     */
+    public boolean isActive(int ruleId, CorazaWafCrs crs) {
+        int ruleSet = ruleSetNumber(ruleId);
+        RequestRuleSet requestRuleSet = RequestRuleSet.get(ruleSet);
+        if (requestRuleSet != null && !crs.getEnabledRequestRules().contains(requestRuleSet)) {
+            return false;
+        }
+        ResponseRuleSet responseRuleSet = ResponseRuleSet.get(ruleSet);
+        if (responseRuleSet != null && !crs.getEnabledResponseRules().contains(responseRuleSet)) {
+            return false;
+        }
+        int paranoiaLevel = Math.max(crs.getParanoiaLevel().getEnforcing(), crs.getParanoiaLevel().getDetecting());
+        return rule(ruleId).map(rule -> rule.paranoiaLevel() <= paranoiaLevel).orElse(true);
+    }
+
+    static CrsRuleIndex load(String crsVersion) {
+        String resource = RESOURCE_PREFIX + crsVersion + ".tsv";
+        Map<Integer, Rule> rules = new HashMap<>();
+        try (InputStream in = CrsRuleIndex.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                log.infof("No CRS rule index %s, falling back to the rule ID ranges", resource);
+                return new CrsRuleIndex(Map.of());
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                // id, phase, paranoia level, comma separated tags
+                String[] columns = line.split("\t", -1);
+                int id = Integer.parseInt(columns[0]);
+                List<String> tags = columns.length > 3 && !columns[3].isEmpty() ? List.of(columns[3].split(",")) : List.of();
+                rules.put(id, new Rule(id, Integer.parseInt(columns[1]), Integer.parseInt(columns[2]), tags));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warnf("Unable to read CRS rule index %s, falling back to the rule ID ranges: %s", resource, e.getMessage());
+            return new CrsRuleIndex(Map.of());
+        }
+        log.debugf("Loaded %d rules of CRS %s", rules.size(), crsVersion);
+        return new CrsRuleIndex(Map.copyOf(rules));
+    }
+}
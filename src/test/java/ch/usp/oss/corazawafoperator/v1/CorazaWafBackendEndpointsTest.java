@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWafBackendEndpoints.BackendEndpoint;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSlice;
+import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSliceBuilder;
+import io.javaoperatorsdk.operator.processing.event.ResourceID;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CorazaWafBackendEndpointsTest {
+
+    @Test
+    void onlySlicesOfTheBackendServiceAreUsed() {
+        List<EndpointSlice> cached = List.of(
+                slice("ns", "backend", "backend-abc", "IPv4", "10.0.0.2", "10.0.0.1"),
+                slice("ns", "backend", "backend-def", "IPv6", "fd00::1"),
+                slice("ns", "old-backend", "old-backend-abc", "IPv4", "10.0.1.1"),
+                slice("other", "backend", "backend-xyz", "IPv4", "10.0.2.1"));
+
+        List<EndpointSlice> slices = CorazaWafBackendEndpoints.serviceEndpointSlices(cached.stream(),
+                new ResourceID("backend", "ns"));
+
+        assertEquals(List.of("backend-abc"), slices.stream().map(es -> es.getMetadata().getName()).toList());
+        assertEquals(List.of(new BackendEndpoint("10.0.0.1", 8080), new BackendEndpoint("10.0.0.2", 8080)),
+                CorazaWafBackendEndpoints.readyEndpoints(slices, null));
+    }
+
+    @Test
+    void notReadyEndpointsAndUnnamedSlicesAreSkipped() {
+        EndpointSlice slice = new EndpointSliceBuilder(slice("ns", "backend", "backend-abc", "IPv4", "10.0.0.1"))
+                .addNewEndpoint().withAddresses("10.0.0.9").withNewConditions().withReady(false).endConditions()
+                .endEndpoint()
+                .build();
+        EndpointSlice unlabeled = new EndpointSliceBuilder(slice("ns", "backend", "manual", "IPv4", "10.0.3.1"))
+                .editMetadata().withLabels(null).endMetadata()
+                .build();
+
+        List<EndpointSlice> slices = CorazaWafBackendEndpoints.serviceEndpointSlices(Stream.of(slice, unlabeled),
+                new ResourceID("backend", "ns"));
+
+        assertEquals(List.of(new BackendEndpoint("10.0.0.1", 8080)),
+                CorazaWafBackendEndpoints.readyEndpoints(slices, null));
+    }
+
+    private static EndpointSlice slice(String namespace, String service, String name, String addressType,
+                                       String... addresses) {
+        EndpointSliceBuilder builder = new EndpointSliceBuilder()
+                .withNewMetadata()
+                .withNamespace(namespace)
+                .withName(name)
+                .addToLabels(CorazaWafBackendEndpoints.SERVICE_NAME_LABEL, service)
+                .endMetadata()
+                .withAddressType(addressType)
+                .addNewPort().withName("http").withPort(8080).endPort();
+        for (String address : addresses) {
+            builder.addNewEndpoint().withAddresses(address).endEndpoint();
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWafDataPlaneStats.PodSample;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorazaWafDataPlaneStatsTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void parsesCountersQuantilesAndOverload() throws Exception {
+        PodSample sample = CorazaWafDataPlaneStats.parse(MAPPER.readTree("""
+                {"stats": [
+                  {"name": "http.corazawaf.downstream_rq_total", "value": 1000},
+                  {"name": "http.corazawaf.downstream_rq_4xx", "value": 120},
+                  {"name": "cluster.corazawaf.cluster.backend.upstream_rq_total", "value": 900},
+                  {"name": "cluster.corazawaf.cluster.backend.upstream_rq_4xx", "value": 15},
+                  {"name": "cluster.corazawaf.cluster.backend.upstream_rq_5xx", "value": 9},
+                  {"name": "cluster.corazawaf.cluster.backend.ns.member.upstream_rq_total", "value": 50},
+                  {"name": "cluster.corazawaf.cluster.backend.ns.member.upstream_rq_4xx", "value": 5},
+                  {"name": "cluster.corazawaf.cluster.backend.ns.member.upstream_rq_5xx", "value": 1},
+                  {"name": "overload.envoy.resource_monitors.fixed_heap.pressure", "value": 87},
+                  {"name": "overload.envoy.overload_actions.reset_high_memory_stream.scale_percent", "value": 40},
+                  {"name": "overload.envoy.overload_actions.stop_accepting_requests.scale_percent", "value": 0},
+                  {"histograms": {
+                    "supported_quantiles": [0, 25, 50, 75, 90, 95, 99, 99.5, 99.9, 100],
+                    "computed_quantiles": [
+                      {"name": "http.corazawaf.downstream_cx_length_ms", "values": [{}, {}, {"interval": 9000}]},
+                      {"name": "http.corazawaf.downstream_rq_time", "values": [
+                        {}, {}, {"interval": 1.234, "cumulative": 2}, {}, {}, {},
+                        {"interval": null, "cumulative": 48.5}, {}, {}, {}]}
+                    ]}}
+                ]}
+                """), 1000);
+
+        assertEquals(new PodSample(1000, 1000, 100, 950, 10, 1.23, 48.5, 0.87,
+                Set.of("reset_high_memory_stream")), sample);
+    }
+
+    @Test
+    void parsesStatsOfIdlePod() throws Exception {
+        PodSample sample = CorazaWafDataPlaneStats.parse(MAPPER.readTree("""
+                {"stats": [{"name": "http.corazawaf.downstream_rq_4xx", "value": 0}]}
+                """), 1000);
+
+        assertEquals(new PodSample(1000, 0, 0, 0, 0, null, null, null, Set.of()), sample);
+    }
+
+    @Test
+    void firstScrapeHasNoRates() {
+        CorazaWafDataPlaneStatus status = CorazaWafDataPlaneStats.aggregate(Map.of(),
+                Map.of("pod-a", sample(10_000, 500, 50, 400, 4, 2.0, 30.0, 0.5, Set.of())), NOW);
+
+        assertEquals(1, status.getPods());
+        assertNull(status.getRequestsPerSecond());
+        assertNull(status.getBlockedRequestsPerSecond());
+        assertNull(status.getUpstreamErrorRate());
+        assertEquals(2.0, status.getRequestLatencyP50Ms());
+        assertEquals(30.0, status.getRequestLatencyP99Ms());
+        assertEquals(0.5, status.getHeapPressure());
+        assertEquals(0, status.getOverloadedPods());
+        assertNull(status.getOverloadActions());
+        assertEquals("2025-01-01T00:00:00Z", status.getScrapeTime());
+    }
+
+    @Test
+    void ratesAreSummedOverPodsAndQuantilesAreTheMax() {
+        Map<String, PodSample> previous = Map.of(
+                "pod-a", sample(10_000, 500, 50, 400, 4, 2.0, 30.0, 0.5, Set.of()),
+                "pod-b", sample(10_000, 300, 10, 280, 0, 1.0, 10.0, 0.2, Set.of()));
+        Map<String, PodSample> current = Map.of(
+                "pod-a", sample(20_000, 600, 60, 490, 6, 2.5, 20.0, 0.6, Set.of("shrink_heap")),
+                "pod-b", sample(20_000, 400, 20, 370, 2, 3.0, 15.0, 0.9, Set.of("reset_high_memory_stream", "shrink_heap")));
+
+        CorazaWafDataPlaneStatus status = CorazaWafDataPlaneStats.aggregate(previous, current, NOW);
+
+        assertEquals(2, status.getPods());
+        assertEquals(20.0, status.getRequestsPerSecond());
+        assertEquals(2.0, status.getBlockedRequestsPerSecond());
+        assertEquals(0.02, status.getUpstreamErrorRate());
+        assertEquals(3.0, status.getRequestLatencyP50Ms());
+        assertEquals(20.0, status.getRequestLatencyP99Ms());
+        assertEquals(0.9, status.getHeapPressure());
+        assertEquals(2, status.getOverloadedPods());
+        assertEquals(List.of("reset_high_memory_stream", "shrink_heap"), status.getOverloadActions());
+    }
+
+    @Test
+    void restartedAndNewPodsAreLeftOutOfRates() {
+        Map<String, PodSample> previous = Map.of(
+                "pod-a", sample(10_000, 500, 50, 400, 4, null, null, null, Set.of()),
+                "pod-b", sample(10_000, 9000, 10, 8000, 0, null, null, null, Set.of()));
+        Map<String, PodSample> current = Map.of(
+                "pod-a", sample(15_000, 550, 50, 450, 4, null, null, null, Set.of()),
+                "pod-b", sample(15_000, 20, 0, 20, 20, null, null, null, Set.of()),
+                "pod-c", sample(15_000, 100, 100, 0, 0, null, null, null, Set.of()));
+
+        CorazaWafDataPlaneStatus status = CorazaWafDataPlaneStats.aggregate(previous, current, NOW);
+
+        assertEquals(3, status.getPods());
+        assertEquals(10.0, status.getRequestsPerSecond());
+        assertEquals(0.0, status.getBlockedRequestsPerSecond());
+        assertEquals(0.0, status.getUpstreamErrorRate());
+        assertNull(status.getRequestLatencyP50Ms());
+    }
+
+    @Test
+    void noUpstreamRequestsHasNoErrorRate() {
+        CorazaWafDataPlaneStatus status = CorazaWafDataPlaneStats.aggregate(
+                Map.of("pod-a", sample(10_000, 100, 0, 0, 0, null, null, null, Set.of())),
+                Map.of("pod-a", sample(12_000, 103, 3, 0, 0, null, null, null, Set.of())), NOW);
+
+        assertEquals(1.5, status.getRequestsPerSecond());
+        assertEquals(1.5, status.getBlockedRequestsPerSecond());
+        assertNull(status.getUpstreamErrorRate());
+    }
+
+    @Test
+    void sameValuesScrapedLaterAreUnchanged() {
+        Map<String, PodSample> previous = Map.of("pod-a", sample(10_000, 100, 0, 100, 0, 1.0, 2.0, null, Set.of()));
+        Map<String, PodSample> current = Map.of("pod-a", sample(20_000, 100, 0, 100, 0, 1.0, 2.0, null, Set.of()));
+        CorazaWafDataPlaneStatus status = CorazaWafDataPlaneStats.aggregate(previous, current, NOW);
+        CorazaWafDataPlaneStatus idle = CorazaWafDataPlaneStats.aggregate(current,
+                Map.of("pod-a", sample(30_000, 100, 0, 100, 0, 1.0, 2.0, null, Set.of())), NOW.plusSeconds(10));
+        CorazaWafDataPlaneStatus busy = CorazaWafDataPlaneStats.aggregate(current,
+                Map.of("pod-a", sample(30_000, 150, 0, 150, 0, 1.0, 2.0, null, Set.of())), NOW.plusSeconds(10));
+
+        assertFalse(CorazaWafDataPlaneStats.isUnchanged(null, status));
+        assertTrue(CorazaWafDataPlaneStats.isUnchanged(status, idle));
+        assertFalse(CorazaWafDataPlaneStats.isUnchanged(status, busy));
+    }
+
+    private static PodSample sample(long timeMillis, long requests, long local4xx, long upstreamRequests,
+                                    long upstream5xx, Double p50, Double p99, Double heapPressure,
+                                    Set<String> overloadActions) {
+        return new PodSample(timeMillis, requests, local4xx, upstreamRequests, upstream5xx, p50, p99, heapPressure,
+                overloadActions);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafAccessLog;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafBackend;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafResources;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafSpec;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorazaWafSharedGatewayTest {
+
+    @Test
+    void defaultMemberSettingsAreNotReported() {
+        assertTrue(CorazaWafSharedGateway.ignoredMemberSettings(CorazaWafSpec.builder().build()).isEmpty());
+    }
+
+    @Test
+    void podAndListenerSettingsOfMemberAreReported() {
+        CorazaWafSpec spec = CorazaWafSpec.builder()
+                .replicas(3)
+                .resources(CorazaWafResources.builder().memoryLimit("1Gi").build())
+                .accessLog(CorazaWafAccessLog.builder().enabled(false).build())
+                .build();
+
+        List<String> warnings = CorazaWafSharedGateway.ignoredMemberSettings(spec);
+
+        assertEquals(3, warnings.size());
+        assertTrue(warnings.get(0).startsWith("replicas "));
+        assertTrue(warnings.get(1).startsWith("resources "));
+        assertTrue(warnings.get(2).startsWith("accessLog "));
+    }
+
+    @Test
+    void membersWithCollidingHostsOrInvalidSpecAreSkipped() {
+        CorazaWaf gateway = corazaWaf("gateway", List.of("shop.example.com"));
+        List<CorazaWaf> members = List.of(
+                corazaWaf("a", List.of("api.example.com")),
+                corazaWaf("b", List.of("admin.example.com", "api.example.com")),
+                corazaWaf("c", List.of("shop.example.com")),
+                corazaWaf("d", List.of()),
+                corazaWaf("e", List.of("static.example.com")));
+
+        assertEquals(List.of("gateway", "a", "e"),
+                CorazaWafSharedGateway.tenants(gateway, members).stream().map(CorazaWafSharedGateway.Tenant::name).toList());
+        Map<String, String> skipped = CorazaWafSharedGateway.skippedMembers(gateway, members);
+        assertEquals(List.of("b", "c", "d"), List.copyOf(skipped.keySet()));
+        assertEquals("host api.example.com is already served by a", skipped.get("b"));
+        assertEquals("host shop.example.com is already served by gateway", skipped.get("c"));
+        assertTrue(skipped.get("d").startsWith("hosts must list"));
+    }
+
+    private static CorazaWaf corazaWaf(String name, List<String> hosts) {
+        CorazaWaf corazaWaf = new CorazaWaf();
+        corazaWaf.setMetadata(new ObjectMetaBuilder().withNamespace("ns").withName(name).build());
+        corazaWaf.setSpec(CorazaWafSpec.builder()
+                .hosts(hosts)
+                .backend(CorazaWafBackend.builder().hostname("backend").port(8080).build())
+                .build());
+        return corazaWaf;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1;
+
+import ch.usp.oss.corazawafoperator.v1.CorazaWafXdsServer.ResourceType;
+import ch.usp.oss.corazawafoperator.v1.CorazaWafXdsServer.XdsResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the xDS server like Envoy's REST subscription does: each fetch carries the last applied version.
+ */
+class CorazaWafXdsServerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private CorazaWafXdsServer server;
+    private CorazaWaf corazaWaf;
+
+    @BeforeEach
+    void setUp() {
+        server = new CorazaWafXdsServer();
+        server.enabled = true;
+        server.hold = Duration.ofMillis(200);
+        corazaWaf = new CorazaWaf();
+        corazaWaf.setMetadata(new ObjectMetaBuilder().withNamespace("ns").withName("waf").withUid("uid-1").build());
+    }
+
+    @Test
+    void firstFetchGetsCurrentVersion() throws Exception {
+        server.publish(corazaWaf, listeners("v1"), clusters("c1"), null);
+
+        XdsResponse response = fetch(ResourceType.LISTENERS, "", "uid-1").get(1, TimeUnit.SECONDS);
+
+        assertEquals(200, response.status());
+        JsonNode body = MAPPER.readTree(response.body());
+        assertEquals("v1", body.get("version_info").asText());
+        assertEquals(ResourceType.LISTENERS.getTypeUrl(), body.get("type_url").asText());
+        assertEquals("corazawaf.listener", body.get("resources").get(0).get("name").asText());
+        assertEquals(ResourceType.LISTENERS.getTypeUrl(), body.get("resources").get(0).get("@type").asText());
+    }
+
+    @Test
+    void heldFetchIsAnsweredByNextVersion() throws Exception {
+        server.hold = Duration.ofSeconds(30);
+        server.publish(corazaWaf, listeners("v1"), clusters("c1"), null);
+        CompletableFuture<XdsResponse> listenerFetch = fetch(ResourceType.LISTENERS, "v1", "uid-1");
+        CompletableFuture<XdsResponse> clusterFetch = fetch(ResourceType.CLUSTERS, "c1", "uid-1");
+        assertFalse(listenerFetch.isDone());
+
+        // only the listener changed, the clusters are not sent again
+        server.publish(corazaWaf, listeners("v2"), clusters("c1"), null);
+
+        XdsResponse response = listenerFetch.get(1, TimeUnit.SECONDS);
+        assertEquals(200, response.status());
+        assertEquals("v2", MAPPER.readTree(response.body()).get("version_info").asText());
+        assertFalse(clusterFetch.isDone());
+    }
+
+    @Test
+    void unchangedVersionIsNotModified() throws Exception {
+        server.publish(corazaWaf, listeners("v1"), clusters("c1"), null);
+        CompletableFuture<XdsResponse> fetch = fetch(ResourceType.LISTENERS, "v1", "uid-1");
+
+        server.publish(corazaWaf, listeners("v1"), clusters("c1"), null);
+
+        assertEquals(304, fetch.get(1, TimeUnit.SECONDS).status());
+    }
+
+    @Test
+    void fetchBeforeFirstPublishWaits() throws Exception {
+        server.hold = Duration.ofSeconds(30);
+        CompletableFuture<XdsResponse> fetch = fetch(ResourceType.CLUSTERS, "c1", "uid-1");
+        assertFalse(fetch.isDone());
+
+        server.publish(corazaWaf, listeners("v1"), clusters("c2"), null);
+
+        assertEquals(200, fetch.get(1, TimeUnit.SECONDS).status());
+    }
+
+    @Test
+    void wrongTokenIsForbidden() throws Exception {
+        server.publish(corazaWaf, listeners("v1"), clusters("c1"), null);
+
+        assertEquals(403, fetch(ResourceType.LISTENERS, "", "uid-2").get(1, TimeUnit.SECONDS).status());
+    }
+
+    @Test
+    void invalidRequestIsRejected() throws Exception {
+        assertEquals(400, server.discover(ResourceType.LISTENERS, "{").get(1, TimeUnit.SECONDS).status());
+    }
+
+    @Test
+    void deletedCrIsDropped() throws Exception {
+        server.publish(corazaWaf, listeners("v1"), clusters("c1"), null);
+
+        server.retain(Set.of("ns/other"));
+
+        assertEquals(304, fetch(ResourceType.LISTENERS, "", "uid-1").get(1, TimeUnit.SECONDS).status());
+    }
+
+    private CompletableFuture<XdsResponse> fetch(ResourceType type, String version, String token) {
+        String request = MAPPER.createObjectNode()
+                .put("version_info", version)
+                .put("type_url", type.getTypeUrl())
+                .set("node", MAPPER.createObjectNode()
+                        .put("id", "corazawaf.id")
+                        .put("cluster", "ns/waf")
+                        .set("metadata", MAPPER.createObjectNode().put("token", token)))
+                .toString();
+        return server.discover(type, request);
+    }
+
+    private static String listeners(String version) {
+        return """
+                versionInfo: "%s"
+                resources:
+                - '@type': "type.googleapis.com/envoy.config.listener.v3.Listener"
+                  name: "corazawaf.listener"
+                """.formatted(version);
+    }
+
+    private static String clusters(String version) {
+        return """
+                versionInfo: "%s"
+                resources:
+                  - '@type': "type.googleapis.com/envoy.config.cluster.v3.Cluster"
+                    name: "corazawaf.cluster.backend"
+                """.formatted(version);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.dependent;
+
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafResources;
+import ch.usp.oss.corazawafoperator.v1.spec.CorazaWafSpec;
+import io.fabric8.kubernetes.api.model.Quantity;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CorazaWafDeploymentResourceTest {
+
+    @Test
+    void noMemoryRequestWithoutLimit() {
+        CorazaWafSpec spec = spec(CorazaWafResources.builder().build());
+        spec.setRequestBodyLimitKb(1024 * 1024);
+        assertNull(CorazaWafDeploymentResource.memoryRequest(spec));
+    }
+
+    @Test
+    void explicitMemoryRequest() {
+        CorazaWafSpec spec = spec(CorazaWafResources.builder().memoryRequest("300Mi").build());
+        assertEquals(new Quantity("300Mi"), CorazaWafDeploymentResource.memoryRequest(spec));
+    }
+
+    @Test
+    void derivedMemoryRequestIsCappedAtLimit() {
+        CorazaWafSpec spec = spec(CorazaWafResources.builder().memoryLimit("2Gi").build());
+        spec.setRequestBodyLimitKb(1024 * 1024);
+        assertEquals(new Quantity("2048Mi"), CorazaWafDeploymentResource.memoryRequest(spec));
+    }
+
+    @Test
+    void derivedMemoryRequestIncludesBodiesOfConcurrentStreams() {
+        CorazaWafSpec spec = spec(CorazaWafResources.builder().memoryLimit("8Gi").concurrentStreams(10).build());
+        long expectedBytes = (256L << 20) + spec.getInspectedBodyBytesPerStream() * 10;
+        assertEquals(Quantity.getAmountInBytes(new Quantity(((expectedBytes + (1L << 20) - 1) >> 20) + "Mi")),
+                Quantity.getAmountInBytes(CorazaWafDeploymentResource.memoryRequest(spec)));
+    }
+
+    @Test
+    void concurrencyIsRoundedUpFromCpu() {
+        assertEquals(1, CorazaWafDeploymentResource.envoyConcurrency(spec(CorazaWafResources.builder().cpuLimit("250m").build())));
+        assertEquals(2, CorazaWafDeploymentResource.envoyConcurrency(spec(CorazaWafResources.builder().cpuLimit("1500m").build())));
+        assertEquals(2, CorazaWafDeploymentResource.envoyConcurrency(spec(CorazaWafResources.builder().cpuRequest("2").build())));
+        assertEquals(3, CorazaWafDeploymentResource.envoyConcurrency(spec(CorazaWafResources.builder().cpuRequest("1").cpuLimit("3").build())));
+    }
+
+    @Test
+    void explicitConcurrencyAndNoCpu() {
+        assertEquals(4, CorazaWafDeploymentResource.envoyConcurrency(spec(CorazaWafResources.builder().cpuLimit("1").concurrency(4).build())));
+        assertNull(CorazaWafDeploymentResource.envoyConcurrency(spec(CorazaWafResources.builder().build())));
+    }
+
+    private static CorazaWafSpec spec(CorazaWafResources resources) {
+        CorazaWafSpec spec = new CorazaWafSpec();
+        spec.setResources(resources);
+        return spec;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CorazaWafAccessLogTest {
+
+    @Test
+    void rotatesAtAThirdOfTheVolume() {
+        CorazaWafAccessLog accessLog = fileSink("96Mi");
+        assertDoesNotThrow(accessLog::validate);
+        assertEquals(32L << 20, accessLog.getFileRotateBytes());
+    }
+
+    @Test
+    void rejectsInvalidOrTooSmallVolumes() {
+        assertThrows(IllegalArgumentException.class, () -> fileSink("64 MB").validate());
+        assertThrows(IllegalArgumentException.class, () -> fileSink("-64Mi").validate());
+        assertThrows(IllegalArgumentException.class, () -> fileSink("8Mi").validate());
+    }
+
+    @Test
+    void ignoresVolumeOfStdoutSink() {
+        assertDoesNotThrow(() -> CorazaWafAccessLog.builder().fileVolumeSizeLimit("8Mi").build().validate());
+    }
+
+    private static CorazaWafAccessLog fileSink(String fileVolumeSizeLimit) {
+        return CorazaWafAccessLog.builder()
+                .sink(CorazaWafAccessLog.Sink.FILE)
+                .fileVolumeSizeLimit(fileVolumeSizeLimit)
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CorazaWafAutoscalingTest {
+
+    @Test
+    void requiresCpuRequestOrLimitIfEnabled() {
+        CorazaWafAutoscaling autoscaling = CorazaWafAutoscaling.builder().enabled(true).build();
+        assertThrows(IllegalArgumentException.class, () -> autoscaling.validate(new CorazaWafResources()));
+        assertDoesNotThrow(() -> autoscaling.validate(CorazaWafResources.builder().cpuRequest("500m").build()));
+        assertDoesNotThrow(() -> autoscaling.validate(CorazaWafResources.builder().cpuLimit("1").build()));
+        assertDoesNotThrow(() -> new CorazaWafAutoscaling().validate(new CorazaWafResources()));
+    }
+
+    @Test
+    void rejectsMinReplicasAboveMaxReplicas() {
+        CorazaWafAutoscaling autoscaling = CorazaWafAutoscaling.builder().minReplicas(3).maxReplicas(2).build();
+        assertThrows(IllegalArgumentException.class,
+                () -> autoscaling.validate(CorazaWafResources.builder().cpuRequest("1").build()));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorazaWafBypassPathTest {
+
+    @Test
+    void acceptsRe2Regex() {
+        for (String regex : new String[]{"^/static/.*\\.(css|js)$", "/health(z)?", "/[?+*]+", "[]a]+", "[^]\\]]*",
+                "/(?i)assets/", "/(?:a|b){2,3}", "/(?<name>v[0-9]+)/", "\\Q(?=x)\\E", "a\\\\1"}) {
+            assertNull(CorazaWafBypassPath.re2Unsupported(regex), regex);
+            assertDoesNotThrow(() -> regexPath(regex).validate(), regex);
+        }
+    }
+
+    @Test
+    void rejectsConstructsUnsupportedByRe2() {
+        for (String regex : new String[]{"/static/(?!admin)", "/(?=a)", "(?<=/)x", "(?<!/)x", "/(a)\\1",
+                "/(?<n>a)\\k<n>", "/(?>a+)", "/a*+", "/a++", "/a?+", "/a{1,2}+", "\\G/a", "/a\\Z"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> regexPath(regex).validate(), regex);
+            assertTrue(e.getMessage().contains("not supported by RE2"), e.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsInvalidRegexAndRelativePaths() {
+        assertThrows(IllegalArgumentException.class, () -> regexPath("/(a").validate());
+        assertThrows(IllegalArgumentException.class,
+                () -> CorazaWafBypassPath.builder().path("static/").build().validate());
+    }
+
+    private static CorazaWafBypassPath regexPath(String regex) {
+        return CorazaWafBypassPath.builder().path(regex).match(CorazaWafBypassPath.Match.REGEX).build();
+    }
+}
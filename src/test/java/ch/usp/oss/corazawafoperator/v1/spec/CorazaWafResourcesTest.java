@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CorazaWafResourcesTest {
+
+    @Test
+    void acceptsValidQuantities() {
+        assertDoesNotThrow(() -> CorazaWafResources.builder()
+                .cpuRequest("500m").cpuLimit("2")
+                .memoryRequest("512Mi").memoryLimit("1Gi")
+                .tmpVolumeSizeLimit("256Mi")
+                .build().validate());
+        assertDoesNotThrow(() -> new CorazaWafResources().validate());
+    }
+
+    @Test
+    void rejectsInvalidQuantities() {
+        assertThrows(IllegalArgumentException.class, () -> CorazaWafResources.builder().cpuRequest("half").build().validate());
+        assertThrows(IllegalArgumentException.class, () -> CorazaWafResources.builder().memoryLimit("1 GB").build().validate());
+        assertThrows(IllegalArgumentException.class, () -> CorazaWafResources.builder().memoryRequest("0").build().validate());
+        assertThrows(IllegalArgumentException.class, () -> CorazaWafResources.builder().tmpVolumeSizeLimit("x").build().validate());
+    }
+
+    @Test
+    void rejectsRequestAboveLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CorazaWafResources.builder().cpuRequest("2").cpuLimit("1500m").build().validate());
+        assertThrows(IllegalArgumentException.class,
+                () -> CorazaWafResources.builder().memoryRequest("2Gi").memoryLimit("1Gi").build().validate());
+    }
+
+    @Test
+    void envoyHeapExcludesGoHeapAndMemoryVolumes() {
+        CorazaWafResources resources = CorazaWafResources.builder().memoryLimit("1Gi").concurrentStreams(10).build();
+        long corazaHeap = resources.corazaHeapBytes(4L << 20);
+        assertEquals((128L << 20) + (40L << 20), corazaHeap);
+
+        long envoy = (1L << 30) - (64L << 20) - corazaHeap;
+        assertEquals(envoy / 100 * CorazaWafResources.OVERLOAD_HEAP_PERCENT,
+                resources.overloadMaxHeapSizeBytes(corazaHeap, 64L << 20));
+        assertEquals(corazaHeap, resources.goMemoryLimitBytes(corazaHeap, 64L << 20));
+    }
+
+    @Test
+    void envoyKeepsATenthOfAnInsufficientLimit() {
+        CorazaWafResources resources = CorazaWafResources.builder().memoryLimit("1000Mi").build();
+        long limit = 1000L << 20;
+        assertEquals(limit / 10 / 100 * CorazaWafResources.OVERLOAD_HEAP_PERCENT,
+                resources.overloadMaxHeapSizeBytes(2L << 30, 100L << 20));
+        assertEquals(limit - (100L << 20) - limit / 10, resources.goMemoryLimitBytes(2L << 30, 100L << 20));
+    }
+
+    @Test
+    void noHeapLimitsWithoutMemoryLimit() {
+        assertNull(new CorazaWafResources().overloadMaxHeapSizeBytes(1L << 30, 0));
+        assertNull(new CorazaWafResources().goMemoryLimitBytes(1L << 30, 0));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec.crs;
+
+import ch.usp.oss.corazawafoperator.v1.spec.crs.CorazaWafCrsRuleExceptions.CompiledRuleException;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The compiled rules must execute the same ctl actions for every request path as one {@code @beginsWith} rule per
+ * exception. The operators are evaluated like Coraza does on REQUEST_FILENAME, the quoted regexes only use
+ * constructs behaving the same in RE2 and java.util.regex.
+ */
+class CorazaWafCrsRuleExceptionsTest {
+
+    @Test
+    void pathsWithSameActionsShareOneRegex() {
+        Map<String, Set<String>> actionsByPath = new LinkedHashMap<>();
+        actionsByPath.put("/api/", actions("ctl:ruleRemoveById=942100"));
+        actionsByPath.put("/upload", actions("ctl:ruleRemoveById=942100"));
+        actionsByPath.put("/admin/", actions("ctl:ruleRemoveById=920230"));
+
+        List<CompiledRuleException> compiled = CorazaWafCrsRuleExceptions.compile(actionsByPath);
+
+        assertEquals(List.of(
+                new CompiledRuleException("@rx ^(?:/api/|/upload)", "ctl:ruleRemoveById=942100"),
+                new CompiledRuleException("@beginsWith /admin/", "ctl:ruleRemoveById=920230")), compiled);
+        assertEquivalent(actionsByPath, "/", "/api", "/api/", "/api/v1", "/upload", "/uploads/x", "/x/api/",
+                "/admin", "/admin/users");
+    }
+
+    @Test
+    void regexMetaCharactersAreQuoted() {
+        Map<String, Set<String>> actionsByPath = new LinkedHashMap<>();
+        actionsByPath.put("/a.b+c*d?", actions("ctl:ruleRemoveById=1"));
+        actionsByPath.put("/(x){2}|y$", actions("ctl:ruleRemoveById=1"));
+
+        List<CompiledRuleException> compiled = CorazaWafCrsRuleExceptions.compile(actionsByPath);
+
+        assertEquals(1, compiled.size());
+        assertEquals("@rx ^(?:/a[.]b[+]c[*]d[?]|/[(]x[)][{]2[}][|]y[$])", compiled.get(0).operator());
+        assertEquivalent(actionsByPath, "/a.b+c*d?", "/a.b+c*d?/more", "/aXb+c*d?", "/a.bbc*d?", "/a.b+cd",
+                "/(x){2}|y$", "/(x){2}|y$z", "/xx", "/y", "/(x){2}", "/(x){2}|y");
+    }
+
+    @Test
+    void unquotablePathsKeepTheirOwnRule() {
+        Map<String, Set<String>> actionsByPath = new LinkedHashMap<>();
+        actionsByPath.put("/a[1]", actions("ctl:ruleRemoveById=1"));
+        actionsByPath.put("/b\\c", actions("ctl:ruleRemoveById=1"));
+        actionsByPath.put("/^d", actions("ctl:ruleRemoveById=1"));
+        actionsByPath.put("/e\"", actions("ctl:ruleRemoveById=1"));
+        actionsByPath.put("/f", actions("ctl:ruleRemoveById=1"));
+
+        List<CompiledRuleException> compiled = CorazaWafCrsRuleExceptions.compile(actionsByPath);
+
+        assertEquals(List.of("@beginsWith /a[1]", "@beginsWith /b\\c", "@beginsWith /^d", "@beginsWith /e\"",
+                "@beginsWith /f"), compiled.stream().map(CompiledRuleException::operator).toList());
+        assertEquivalent(actionsByPath, "/a[1]", "/a1", "/b\\c/x", "/bc", "/^d", "/d", "/e\"", "/f", "/fx");
+    }
+
+    @Test
+    void exceptionsOfSamePathAreMergedAndInactiveRulesDropped() {
+        List<CorazaWafCrsRequestRuleException> exceptions = List.of(
+                CorazaWafCrsRequestRuleException.builder().path("/api/").ruleIds(List.of(942100, 920230)).build(),
+                CorazaWafCrsRequestRuleException.builder().path("/api/").ruleIds(List.of(942100))
+                        .requestPartType("ARGS").requestPartName("q").build(),
+                CorazaWafCrsRequestRuleException.builder().path("/old/").ruleIds(List.of(920230)).build(),
+                CorazaWafCrsRequestRuleException.builder().path("/").ruleIds(List.of(942100)).build());
+
+        List<CompiledRuleException> compiled = CorazaWafCrsRuleExceptions.compile(exceptions, ruleId -> ruleId != 920230);
+
+        assertEquals(List.of(new CompiledRuleException("@beginsWith /api/",
+                "ctl:ruleRemoveById=942100,ctl:ruleRemoveTargetById=942100;ARGS:q")), compiled);
+    }
+
+    @Test
+    void randomExceptionsAreEquivalentToOneRulePerException() {
+        Random random = new Random(4711);
+        String alphabet = "ab/.+*?(){}|$[]\\^\"-_%";
+        String[] actions = {"ctl:ruleRemoveById=1", "ctl:ruleRemoveById=2", "ctl:ruleRemoveTargetById=3;ARGS:q"};
+        for (int round = 0; round < 200; round++) {
+            Map<String, Set<String>> actionsByPath = new LinkedHashMap<>();
+            List<String> requestPaths = new ArrayList<>();
+            for (int i = random.nextInt(12); i >= 0; i--) {
+                String path = "/" + randomString(random, alphabet, 1 + random.nextInt(6));
+                Set<String> pathActions = actionsByPath.computeIfAbsent(path, p -> new TreeSet<>());
+                for (String action : actions) {
+                    if (random.nextInt(3) == 0) {
+                        pathActions.add(action);
+                    }
+                }
+                requestPaths.add(path);
+                requestPaths.add(path + randomString(random, alphabet, 1 + random.nextInt(4)));
+                requestPaths.add(path.substring(0, path.length() - 1));
+            }
+            for (int i = 0; i < 20; i++) {
+                requestPaths.add("/" + randomString(random, alphabet, random.nextInt(8)));
+            }
+            assertEquivalent(actionsByPath, requestPaths.toArray(String[]::new));
+        }
+    }
+
+    private static void assertEquivalent(Map<String, Set<String>> actionsByPath, String... requestPaths) {
+        List<CompiledRuleException> compiled = CorazaWafCrsRuleExceptions.compile(actionsByPath);
+        assertTrue(compiled.size() <= actionsByPath.size());
+        for (String requestPath : requestPaths) {
+            Set<String> expected = new TreeSet<>();
+            actionsByPath.forEach((path, actions) -> {
+                if (requestPath.startsWith(path)) {
+                    expected.addAll(actions);
+                }
+            });
+            Set<String> actual = new TreeSet<>();
+            for (CompiledRuleException rule : compiled) {
+                if (matches(rule.operator(), requestPath)) {
+                    actual.addAll(List.of(rule.actions().split(",")));
+                }
+            }
+            assertEquals(expected, actual, () -> requestPath + " with " + compiled);
+        }
+    }
+
+    private static boolean matches(String operator, String requestPath) {
+        if (operator.startsWith("@beginsWith ")) {
+            return requestPath.startsWith(operator.substring("@beginsWith ".length()));
+        }
+        if (operator.startsWith("@rx ")) {
+            return Pattern.compile(operator.substring("@rx ".length())).matcher(requestPath).find();
+        }
+        throw new IllegalArgumentException(operator);
+    }
+
+    private static Set<String> actions(String... actions) {
+        return new TreeSet<>(List.of(actions));
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+}
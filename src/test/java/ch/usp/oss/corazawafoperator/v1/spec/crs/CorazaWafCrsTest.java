@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2025 United Security Providers AG, Switzerland
+ */
+package ch.usp.oss.corazawafoperator.v1.spec.crs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CorazaWafCrsTest {
+
+    @Test
+    void acceptsPathSettingsAndExceptionsWithinTheirRuleIdRanges() {
+        assertDoesNotThrow(() -> CorazaWafCrs.builder()
+                .pathSettings(pathSettings(CorazaWafCrs.MAX_PATH_SETTINGS))
+                .requestRuleExceptions(Collections.nCopies(CorazaWafCrs.MAX_RULE_EXCEPTIONS,
+                        CorazaWafCrsRequestRuleException.builder().path("/a").ruleIds(List.of(942100)).build()))
+                .build().validate());
+    }
+
+    @Test
+    void rejectsPathSettingsAndExceptionsExceedingTheirRuleIdRanges() {
+        assertThrows(IllegalArgumentException.class, () -> CorazaWafCrs.builder()
+                .pathSettings(pathSettings(CorazaWafCrs.MAX_PATH_SETTINGS + 1))
+                .build().validate());
+        assertThrows(IllegalArgumentException.class, () -> CorazaWafCrs.builder()
+                .requestRuleExceptions(Collections.nCopies(CorazaWafCrs.MAX_RULE_EXCEPTIONS + 1,
+                        CorazaWafCrsRequestRuleException.builder().path("/a").ruleIds(List.of(942100)).build()))
+                .build().validate());
+        assertThrows(IllegalArgumentException.class, () -> CorazaWafCrs.builder()
+                .responseRuleExceptions(Collections.nCopies(CorazaWafCrs.MAX_RULE_EXCEPTIONS + 1,
+                        CorazaWafCrsResponseRuleException.builder().path("/a").ruleIds(List.of(951100)).build()))
+                .build().validate());
+    }
+
+    private static List<CorazaWafPathSettings> pathSettings(int count) {
+        return Collections.nCopies(count, CorazaWafPathSettings.builder().path("/a").allowedContentType("text/plain").build());
+    }
+}